@@ -0,0 +1,102 @@
+package me.plobnob.quest.benchmark;
+
+import me.plobnob.quest.provider.BenchmarkFixtures;
+import me.plobnob.quest.provider.Quest;
+import me.plobnob.quest.provider.QuestCatalogueIndex;
+import me.plobnob.quest.provider.QuestCatalogueIndex.Filter;
+import me.plobnob.quest.provider.QuestProvider;
+import me.plobnob.quest.provider.QuestSort;
+import me.plobnob.quest.validation.QuestVisibilityCache;
+import me.plobnob.quest.validation.QuestVisibilityCache.Visibility;
+import org.bukkit.plugin.Plugin;
+import org.mockbukkit.mockbukkit.MockBukkit;
+import org.mockbukkit.mockbukkit.ServerMock;
+import org.mockbukkit.mockbukkit.entity.PlayerMock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for browsing the catalogue - narrowing a player's visible quests to a category or tags, sorting them,
+ * counting categories and re-indexing an edited quest.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BrowseBenchmark {
+
+    private static final Filter CATEGORY = new Filter("category_3", Set.of(), QuestSort.CATALOGUE);
+    private static final Filter TAGS = new Filter(null, Set.of("tag_4", "even"), QuestSort.CATALOGUE);
+    private static final Filter SORTED = new Filter("category_3", Set.of(), QuestSort.NAME);
+
+    @Param({"10", "1000", "10000"})
+    public int catalogueSize;
+
+    private QuestProvider questProvider;
+    private QuestCatalogueIndex index;
+    private Visibility visibility;
+    private Quest edited;
+
+    @Setup
+    public void setup() throws IOException {
+        ServerMock server = MockBukkit.mock();
+        Plugin plugin = MockBukkit.createMockPlugin();
+        PlayerMock player = server.addPlayer();
+        player.setOp(true);
+
+        questProvider = BenchmarkFixtures.provider(plugin, catalogueSize);
+        index = new QuestCatalogueIndex(questProvider);
+        questProvider.addListener(index);
+        visibility = new QuestVisibilityCache(questProvider, 60).getVisibility(player);
+        edited = questProvider.getQuests().getFirst();
+    }
+
+    @TearDown
+    public void tearDown() {
+        questProvider.close();
+        MockBukkit.unmock();
+    }
+
+    @Benchmark
+    public Visibility filterCategory() {
+        return index.filter(visibility, CATEGORY);
+    }
+
+    @Benchmark
+    public Visibility filterTags() {
+        return index.filter(visibility, TAGS);
+    }
+
+    @Benchmark
+    public Visibility filterSorted() {
+        return index.filter(visibility, SORTED);
+    }
+
+    @Benchmark
+    public SortedMap<String, Integer> categoryCounts() {
+        return index.getCategoryCounts(visibility);
+    }
+
+    @Benchmark
+    public void reindexQuest() {
+        index.questChanged(edited);
+    }
+
+}
@@ -0,0 +1,104 @@
+package me.plobnob.quest.benchmark;
+
+import me.plobnob.quest.gui.QuestBookPreparer.PreparedView;
+import me.plobnob.quest.gui.QuestBookSession;
+import me.plobnob.quest.gui.QuestBookTemplates;
+import me.plobnob.quest.provider.BenchmarkFixtures;
+import me.plobnob.quest.provider.Quest;
+import me.plobnob.quest.provider.QuestCatalogueIndex.Filter;
+import me.plobnob.quest.provider.QuestProvider;
+import me.plobnob.quest.validation.QuestVisibilityCache;
+import me.plobnob.quest.validation.QuestVisibilityCache.Visibility;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.plugin.Plugin;
+import org.mockbukkit.mockbukkit.MockBukkit;
+import org.mockbukkit.mockbukkit.ServerMock;
+import org.mockbukkit.mockbukkit.entity.PlayerMock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static me.plobnob.quest.gui.QuestBookTemplates.INVENTORY_SIZE;
+
+/**
+ * Benchmarks for the questbook GUI - resolving a clicked slot, preparing pages and computing visibility.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClickLookupBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    public int catalogueSize;
+
+    private PlayerMock player;
+    private QuestProvider questProvider;
+    private QuestVisibilityCache visibilityCache;
+    private QuestBookTemplates templates;
+    private Visibility visibility;
+    private Inventory inventory;
+    private int slot;
+    private int page;
+
+    @Setup
+    public void setup() throws IOException {
+        ServerMock server = MockBukkit.mock();
+        Plugin plugin = MockBukkit.createMockPlugin();
+        player = server.addPlayer();
+        player.setOp(true);
+
+        questProvider = BenchmarkFixtures.provider(plugin, catalogueSize);
+        visibilityCache = new QuestVisibilityCache(questProvider, 60);
+        templates = new QuestBookTemplates(32);
+        visibility = visibilityCache.getVisibility(player);
+
+        QuestBookSession session = new QuestBookSession(new PreparedView(visibility, 0, templates.getPage(visibility, 0), null, Filter.ALL));
+        inventory = session.getInventory();
+    }
+
+    @TearDown
+    public void tearDown() {
+        questProvider.close();
+        MockBukkit.unmock();
+    }
+
+    @Benchmark
+    public Quest clickLookup() {
+        slot = (slot + 1) % INVENTORY_SIZE;
+        return inventory.getHolder(false) instanceof QuestBookSession session ? session.getQuest(slot) : null;
+    }
+
+    @Benchmark
+    public QuestBookTemplates.Page preparedPage() {
+        page = (page + 1) % QuestBookTemplates.getPageCount(visibility);
+        return templates.getPage(visibility, page);
+    }
+
+    @Benchmark
+    public QuestBookTemplates.Page coldPage() {
+        templates.invalidate();
+        return templates.getPage(visibility, 0);
+    }
+
+    @Benchmark
+    public Visibility computeVisibility() {
+        visibilityCache.invalidate(player.getUniqueId());
+        return visibilityCache.getVisibility(player);
+    }
+
+}
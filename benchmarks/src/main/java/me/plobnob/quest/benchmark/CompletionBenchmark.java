@@ -0,0 +1,90 @@
+package me.plobnob.quest.benchmark;
+
+import com.mojang.brigadier.suggestion.Suggestions;
+import com.mojang.brigadier.suggestion.SuggestionsBuilder;
+import me.plobnob.quest.command.QuestBookCompleter;
+import me.plobnob.quest.metrics.QuestMetrics;
+import me.plobnob.quest.provider.BenchmarkFixtures;
+import me.plobnob.quest.provider.Quest;
+import org.bukkit.plugin.Plugin;
+import org.mockbukkit.mockbukkit.MockBukkit;
+import org.mockbukkit.mockbukkit.ServerMock;
+import org.mockbukkit.mockbukkit.entity.PlayerMock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import static me.plobnob.quest.util.PluginConstants.PERM_QUESTBOOK_VIEW_QUEST;
+
+/**
+ * Benchmarks for quest name tab completion, for a player who can view every quest and one who can view a few.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompletionBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    public int catalogueSize;
+
+    private QuestBookCompleter completer;
+    private PlayerMock viewAllPlayer;
+    private PlayerMock restrictedPlayer;
+
+    @Setup
+    public void setup() {
+        ServerMock server = MockBukkit.mock();
+        Plugin plugin = MockBukkit.createMockPlugin();
+        viewAllPlayer = server.addPlayer();
+        viewAllPlayer.setOp(true);
+        restrictedPlayer = server.addPlayer();
+
+        completer = new QuestBookCompleter(QuestMetrics.disabled());
+        for (Quest quest : BenchmarkFixtures.catalogue(catalogueSize)) {
+            completer.questRegistered(quest);
+            if (quest.getName().hashCode() % 10 == 0)
+                restrictedPlayer.addAttachment(plugin, String.format(PERM_QUESTBOOK_VIEW_QUEST, quest.getName()), true);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        MockBukkit.unmock();
+    }
+
+    @Benchmark
+    public Suggestions emptyPrefix() {
+        return suggest(viewAllPlayer, "");
+    }
+
+    @Benchmark
+    public Suggestions narrowPrefix() {
+        return suggest(viewAllPlayer, "quest_12");
+    }
+
+    @Benchmark
+    public Suggestions restrictedPlayer() {
+        return suggest(restrictedPlayer, "quest_");
+    }
+
+    private Suggestions suggest(PlayerMock player, String typed) {
+        String input = "questbook edit " + typed;
+        SuggestionsBuilder builder = new SuggestionsBuilder(input, input.length() - typed.length());
+        return completer.suggestQuests(player, builder).join();
+    }
+
+}
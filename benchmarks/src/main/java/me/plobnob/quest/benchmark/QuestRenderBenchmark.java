@@ -0,0 +1,102 @@
+package me.plobnob.quest.benchmark;
+
+import me.plobnob.quest.metrics.QuestMetrics;
+import me.plobnob.quest.provider.BenchmarkFixtures;
+import me.plobnob.quest.provider.PlaceholderProvider;
+import me.plobnob.quest.provider.Quest;
+import net.kyori.adventure.inventory.Book;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.plugin.Plugin;
+import org.mockbukkit.mockbukkit.MockBukkit;
+import org.mockbukkit.mockbukkit.ServerMock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for rendering quest display stacks and content books.
+ * Quests are visited round-robin so larger catalogues also exercise cache locality.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QuestRenderBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    public int catalogueSize;
+
+    private List<Quest> quests;
+    private Player player;
+    private PlaceholderProvider placeholderProvider;
+    private PlaceholderProvider uncachedPlaceholderProvider;
+    private int next;
+
+    @Setup
+    public void setup() {
+        ServerMock server = MockBukkit.mock();
+        Plugin plugin = MockBukkit.createMockPlugin();
+        BenchmarkFixtures.configure(plugin);
+        player = server.addPlayer();
+        quests = BenchmarkFixtures.catalogue(catalogueSize);
+
+        placeholderProvider = new PlaceholderProvider(plugin, new StubPlaceholderSource(), QuestMetrics.disabled());
+        plugin.getConfig().set("placeholders.default-ttl", 0);
+        uncachedPlaceholderProvider = new PlaceholderProvider(plugin, new StubPlaceholderSource(), QuestMetrics.disabled());
+    }
+
+    @TearDown
+    public void tearDown() {
+        MockBukkit.unmock();
+    }
+
+    @Benchmark
+    public ItemStack displayStackCached() {
+        return nextQuest().getDisplayStack();
+    }
+
+    @Benchmark
+    public ItemStack displayStackAfterEdit() {
+        Quest quest = nextQuest();
+        quest.setDifficulty(quest.getDifficulty());
+        return quest.getDisplayStack();
+    }
+
+    @Benchmark
+    public Book writeBookFor() {
+        return nextQuest().writeBookFor(player, placeholderProvider);
+    }
+
+    @Benchmark
+    public Book writeBookForUncachedPlaceholders() {
+        return nextQuest().writeBookFor(player, uncachedPlaceholderProvider);
+    }
+
+    @Benchmark
+    public Book writeBookAfterEdit() {
+        Quest quest = nextQuest();
+        quest.setPages(quest.getPages());
+        return quest.writeBookFor(player, placeholderProvider);
+    }
+
+    private Quest nextQuest() {
+        next = (next + 1) % quests.size();
+        return quests.get(next);
+    }
+
+}
@@ -0,0 +1,70 @@
+package me.plobnob.quest.benchmark;
+
+import me.plobnob.quest.provider.BenchmarkFixtures;
+import me.plobnob.quest.provider.Quest;
+import me.plobnob.quest.provider.QuestSearchIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for quest search - a term every quest contains, a term only one quest contains, and an unknown term.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+
+    // Matches the page size of the questbook GUI, times ten pages
+    private static final int LIMIT = 360;
+
+    @Param({"10", "1000", "10000"})
+    public int catalogueSize;
+
+    private QuestSearchIndex index;
+    private Quest edited;
+
+    @Setup
+    public void setup() {
+        index = new QuestSearchIndex();
+        for (Quest quest : BenchmarkFixtures.catalogue(catalogueSize))
+            index.questRegistered(quest);
+        edited = BenchmarkFixtures.quest(catalogueSize);
+        index.questRegistered(edited);
+    }
+
+    @Benchmark
+    public List<Quest> commonTerm() {
+        return index.search("mill", quest -> true, LIMIT);
+    }
+
+    @Benchmark
+    public List<Quest> rareTerms() {
+        return index.search("quest number 7", quest -> true, LIMIT);
+    }
+
+    @Benchmark
+    public List<Quest> unknownTerm() {
+        return index.search("dragon", quest -> true, LIMIT);
+    }
+
+    @Benchmark
+    public void reindexQuest() {
+        index.questChanged(edited);
+    }
+
+}
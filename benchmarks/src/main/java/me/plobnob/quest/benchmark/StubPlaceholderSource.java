@@ -0,0 +1,21 @@
+package me.plobnob.quest.benchmark;
+
+import me.plobnob.quest.provider.PlaceholderProvider.PlaceholderSource;
+import org.bukkit.entity.Player;
+
+/**
+ * A stand-in for PlaceholderAPI - resolves every placeholder to a short fixed-shape value without any expansion lookup,
+ * so the benchmarks measure the plugin rather than a particular expansion.
+ */
+public class StubPlaceholderSource implements PlaceholderSource {
+
+    @Override
+    public String resolve(Player player, String placeholder) {
+        return switch (placeholder) {
+            case "%player_name%" -> player.getName();
+            case "%vault_eco_balance%" -> "1,250.00";
+            default -> placeholder.substring(1, placeholder.length() - 1);
+        };
+    }
+
+}
@@ -0,0 +1,47 @@
+package me.plobnob.quest.benchmark;
+
+import me.plobnob.quest.util.TextFormatter;
+import net.kyori.adventure.text.Component;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the MiniMessage formatting helpers - independent of the catalogue size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TextFormatterBenchmark implements TextFormatter {
+
+    private static final String DESCRIPTION = "<gray>Description: </gray>Travel to the old mill and speak to the miller "
+            + "about the <yellow>missing grain</yellow>. He was last seen near the river bank, just before the storm rolled in.";
+
+    @Benchmark
+    public Component formatPlain() {
+        return format("<yellow>Quest content has successfully been updated!</yellow>");
+    }
+
+    @Benchmark
+    public Component formatWithArguments() {
+        return format("<gray>Difficulty: </gray>%s", "<red>Hard</red>");
+    }
+
+    @Benchmark
+    public List<Component> wrappedFormat() {
+        return wrappedFormat(DESCRIPTION, 60);
+    }
+
+}
@@ -0,0 +1,105 @@
+package me.plobnob.quest.provider;
+
+import me.plobnob.quest.metrics.QuestMetrics;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.plugin.Plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shared fixtures for the benchmarks - generated catalogues and a plugin configured for benchmarking.
+ * Lives in the provider package so storage benchmarks can reach the package-private storage layouts.
+ */
+public final class BenchmarkFixtures {
+
+    // A page mixing formatting, static text and placeholders, as a typical quest page does
+    private static final String PAGE = """
+            <gold><bold>Chapter %d</bold></gold>
+            Welcome back, %%player_name%%! Your balance is <green>%%vault_eco_balance%%</green>.
+            <gray>Travel to the old mill and speak to the miller about the missing grain. He was last seen
+            near the river bank, just before the storm rolled in over the hills.</gray>
+            <yellow>Reward:</yellow> 250 coins and the %%server_name%% mill key.
+            """;
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * Function to build a quest with generated content.
+     * @param index The quest index, used for its name
+     * @return The quest
+     */
+    public static Quest quest(int index) {
+        Quest quest = new Quest();
+        quest.setName("quest_" + index);
+        quest.setDisplayName("<aqua>Quest number " + index + "</aqua>");
+        quest.setAuthor("benchmark");
+        quest.setDifficulty(index % 2 == 0 ? "<green>Easy</green>" : "<red>Hard</red>");
+        quest.setDescription("A generated quest used to measure rendering, with a description long enough to wrap "
+                + "across several lines of lore in the questbook GUI.");
+        quest.setDisplayStack(new ItemStack(Material.WRITTEN_BOOK, 1));
+
+        List<String> pages = new ArrayList<>();
+        for (int page = 1; page <= 8; page++)
+            pages.add(String.format(PAGE, page));
+        quest.setPages(pages);
+        quest.setTags(List.of("tag_" + index % 10, index % 2 == 0 ? "even" : "odd"));
+        quest.setCategory("category_" + index % 5);
+        quest.setUpdated(index);
+        return quest;
+    }
+
+    /**
+     * Function to build a catalogue of generated quests.
+     * @param size The number of quests
+     * @return The quests, in catalogue order
+     */
+    public static List<Quest> catalogue(int size) {
+        List<Quest> quests = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+            quests.add(quest(i));
+        return quests;
+    }
+
+    /**
+     * Function to configure a mock plugin the way the benchmarks expect - file watching is disabled so the watcher
+     * thread does not react to the benchmarks' own writes.
+     * @param plugin The mock plugin
+     */
+    public static void configure(Plugin plugin) {
+        plugin.getConfig().set("storage.watch", false);
+        plugin.getConfig().set("storage.save-delay", 1);
+        if (!plugin.getDataFolder().isDirectory() && !plugin.getDataFolder().mkdirs())
+            throw new IllegalStateException("Failed to create the benchmark data folder");
+    }
+
+    /**
+     * Function to write a catalogue into a plugin's data folder as quests.yml.
+     * @param plugin The mock plugin
+     * @param quests The quests to write
+     * @throws IOException If the catalogue could not be written
+     */
+    public static void writeCatalogue(Plugin plugin, List<Quest> quests) throws IOException {
+        new SingleFileQuestStorage(new File(plugin.getDataFolder(), "quests.yml"))
+                .prepareSave(quests, quests, List.of(), true)
+                .write();
+    }
+
+    /**
+     * Function to create a quest provider over a generated catalogue.
+     * @param plugin The mock plugin
+     * @param size The number of quests
+     * @return The loaded quest provider
+     * @throws IOException If the catalogue could not be written
+     */
+    public static QuestProvider provider(Plugin plugin, int size) throws IOException {
+        configure(plugin);
+        writeCatalogue(plugin, catalogue(size));
+        return new QuestProvider(plugin, QuestMetrics.disabled());
+    }
+
+}
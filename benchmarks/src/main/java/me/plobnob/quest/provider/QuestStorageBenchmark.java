@@ -0,0 +1,120 @@
+package me.plobnob.quest.provider;
+
+import me.plobnob.quest.metrics.QuestMetrics;
+import org.bukkit.plugin.Plugin;
+import org.mockbukkit.mockbukkit.MockBukkit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for loading and saving the quest catalogue through each storage layout.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QuestStorageBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    public int catalogueSize;
+
+    private Plugin plugin;
+    private List<Quest> quests;
+    private SingleFileQuestStorage singleStorage;
+    private ShardedQuestStorage shardedStorage;
+    private QuestSnapshotFile snapshot;
+    private byte[] encodedSnapshot;
+    private int next;
+
+    @Setup
+    public void setup() throws IOException {
+        MockBukkit.mock();
+        plugin = MockBukkit.createMockPlugin();
+        BenchmarkFixtures.configure(plugin);
+        quests = BenchmarkFixtures.catalogue(catalogueSize);
+
+        File questsFile = new File(plugin.getDataFolder(), "quests.yml");
+        singleStorage = new SingleFileQuestStorage(questsFile);
+        singleStorage.prepareSave(quests, quests, List.of(), true).write();
+
+        shardedStorage = new ShardedQuestStorage(plugin, new File(plugin.getDataFolder(), "quests"), new File(plugin.getDataFolder(), "legacy.yml"));
+        shardedStorage.load();
+        shardedStorage.prepareSave(quests, quests, List.of(), true).write();
+
+        snapshot = new QuestSnapshotFile(new File(plugin.getDataFolder(), "quests.bin"));
+        encodedSnapshot = snapshot.encode(quests, singleStorage.fingerprint());
+        snapshot.write(encodedSnapshot);
+    }
+
+    @TearDown
+    public void tearDown() {
+        MockBukkit.unmock();
+    }
+
+    @Benchmark
+    public List<Quest> loadSingleFile() {
+        return singleStorage.load();
+    }
+
+    @Benchmark
+    public List<Quest> loadSharded() throws IOException {
+        return shardedStorage.load();
+    }
+
+    @Benchmark
+    public List<Quest> loadSnapshot() throws IOException {
+        return snapshot.read();
+    }
+
+    @Benchmark
+    public void saveSingleFile() throws IOException {
+        singleStorage.prepareSave(quests, List.of(nextQuest()), List.of(), false).write();
+    }
+
+    @Benchmark
+    public void saveShardedOneQuest() throws IOException {
+        shardedStorage.prepareSave(quests, List.of(nextQuest()), List.of(), false).write();
+    }
+
+    @Benchmark
+    public byte[] encodeSnapshot() {
+        return snapshot.encode(quests, singleStorage.fingerprint());
+    }
+
+    @Benchmark
+    public void writeSnapshot() throws IOException {
+        snapshot.write(encodedSnapshot);
+    }
+
+    @Benchmark
+    public int startProvider() throws IOException {
+        // Full startup - storage or snapshot load, name index and page store
+        QuestProvider provider = new QuestProvider(plugin, QuestMetrics.disabled());
+        int size = provider.getQuests().size();
+        provider.close();
+        return size;
+    }
+
+    private Quest nextQuest() {
+        next = (next + 1) % quests.size();
+        return quests.get(next);
+    }
+
+}
@@ -1,18 +1,29 @@
 package me.plobnob.quest;
 
+import io.papermc.paper.plugin.lifecycle.event.types.LifecycleEvents;
 import me.plobnob.quest.command.QuestBookCommand;
 import me.plobnob.quest.command.QuestBookCompleter;
+import me.plobnob.quest.gui.QuestBookPreparer;
+import me.plobnob.quest.gui.QuestBookTemplates;
 import me.plobnob.quest.listener.QuestBookClickEvent;
 import me.plobnob.quest.listener.QuestBookUpdatedEvent;
+import me.plobnob.quest.metrics.QuestMetrics;
+import me.plobnob.quest.provider.PlaceholderProvider;
 import me.plobnob.quest.provider.Quest;
 import me.plobnob.quest.provider.QuestProvider;
+import me.plobnob.quest.provider.QuestCatalogueIndex;
+import me.plobnob.quest.provider.QuestSearchIndex;
+import me.plobnob.quest.provider.QuestTransfer;
+import me.plobnob.quest.validation.QuestVisibilityCache;
 import org.bukkit.Bukkit;
-import org.bukkit.command.PluginCommand;
 import org.bukkit.configuration.serialization.ConfigurationSerialization;
 import org.bukkit.plugin.PluginManager;
 import org.bukkit.plugin.java.JavaPlugin;
 
-import static me.plobnob.quest.util.PluginConstants.CMD_QUESTBOOK;
+import java.util.List;
+
+import static me.plobnob.quest.util.PluginConstants.CMD_QUESTBOOK_ALIAS;
+import static me.plobnob.quest.util.PluginConstants.CMD_QUESTBOOK_DESCRIPTION;
 
 /**
  * Main entry point for the plugin.
@@ -22,6 +33,10 @@ public final class SimpleQuestBook extends JavaPlugin {
     // Member variables - saved for unregistering on plugin disable
     QuestBookClickEvent questBookClickEvent;
     QuestBookUpdatedEvent questBookUpdatedEvent;
+    QuestProvider questProvider;
+    QuestBookPreparer questBookPreparer;
+    QuestTransfer questTransfer;
+    QuestMetrics metrics;
 
     /**
      * OnEnable event for plugin.
@@ -32,29 +47,45 @@ public final class SimpleQuestBook extends JavaPlugin {
         getComponentLogger().info("Enabling SimpleQuestBook");
 
         // Configuration
+        saveDefaultConfig();
         ConfigurationSerialization.registerClass(Quest.class, "Quest");
-        QuestProvider questProvider = new QuestProvider(this);
+        metrics = QuestMetrics.fromConfig(this);
+        questProvider = new QuestProvider(this, metrics);
+        PlaceholderProvider placeholderProvider = new PlaceholderProvider(this, metrics);
 
         // Listeners
         PluginManager pm = Bukkit.getServer().getPluginManager();
-        questBookClickEvent = new QuestBookClickEvent(questProvider);
+        pm.registerEvents(placeholderProvider, this);
+        QuestVisibilityCache visibilityCache = new QuestVisibilityCache(questProvider, getConfig().getLong("gui.visibility-ttl", 60));
+        pm.registerEvents(visibilityCache, this);
+        QuestBookTemplates questBookTemplates = new QuestBookTemplates(getConfig().getInt("gui.template-classes", 32));
+        questProvider.addListener(questBookTemplates);
+        QuestSearchIndex searchIndex = new QuestSearchIndex();
+        questProvider.addListener(searchIndex);
+        QuestCatalogueIndex catalogueIndex = new QuestCatalogueIndex(questProvider);
+        questProvider.addListener(catalogueIndex);
+        questBookPreparer = new QuestBookPreparer(this, questProvider, placeholderProvider, visibilityCache,
+                questBookTemplates, searchIndex, catalogueIndex, metrics, getConfig().getInt("gui.worker-threads", 2));
+        questBookClickEvent = new QuestBookClickEvent(questBookPreparer, metrics);
         pm.registerEvents(questBookClickEvent, this);
-        questBookUpdatedEvent = new QuestBookUpdatedEvent(questProvider);
+        questBookUpdatedEvent = new QuestBookUpdatedEvent(this, questProvider);
         pm.registerEvents(questBookUpdatedEvent, this);
 
-        // Commands
-        PluginCommand cmdQuestbook = getCommand(CMD_QUESTBOOK);
-        if (cmdQuestbook == null) {
-            getComponentLogger().error("Unexpected error occurred while loading SimpleQuestBook, disabling plugin!");
-            pm.disablePlugin(this);
-            return;
-        }
+        // Commands - registered as a brigadier tree, with quest name suggestions kept in sync with the provider
+        QuestBookCompleter questBookCompleter = new QuestBookCompleter(metrics);
+        questProvider.addListener(questBookCompleter);
+        questTransfer = new QuestTransfer(this, questProvider);
+        QuestBookCommand questBookCommand = new QuestBookCommand(questBookClickEvent, questBookUpdatedEvent, questProvider,
+                questBookCompleter, placeholderProvider, questTransfer, metrics);
 
-        QuestBookCommand questBookCommand = new QuestBookCommand(questBookClickEvent, questBookUpdatedEvent, questProvider);
-        QuestBookCompleter questBookCompleter = new QuestBookCompleter(questProvider);
+        getLifecycleManager().registerEventHandler(LifecycleEvents.COMMANDS, event -> event.registrar()
+                .register(questBookCommand.createCommand(), CMD_QUESTBOOK_DESCRIPTION, List.of(CMD_QUESTBOOK_ALIAS)));
 
-        cmdQuestbook.setExecutor(questBookCommand);
-        cmdQuestbook.setTabCompleter(questBookCompleter);
+        // Metrics - gauges are read on demand, possibly from a JMX thread
+        metrics.gauge(QuestMetrics.Gauge.CATALOGUE_SIZE, () -> questProvider.getQuests().size());
+        metrics.gauge(QuestMetrics.Gauge.OPEN_QUEST_BOOKS, questBookClickEvent::getOpenQuestBooks);
+        metrics.gauge(QuestMetrics.Gauge.EDIT_SESSIONS, questBookUpdatedEvent::getSessionCount);
+        metrics.registerMBeans(this);
     }
 
     /**
@@ -66,8 +97,14 @@ public final class SimpleQuestBook extends JavaPlugin {
         getComponentLogger().info("Disabling SimpleQuestBook");
 
         // Unregister any active cache bindings for handlers - inventories will need to be closed
-        questBookUpdatedEvent.getDistributedBooks().clear();
+        questBookUpdatedEvent.clearSessions();
         questBookClickEvent.clearBindings();
+        questBookPreparer.close();
+        questTransfer.close();
+
+        // Flush any pending quest saves before the plugin is unloaded
+        questProvider.close();
+        metrics.unregisterMBeans();
     }
 
 }
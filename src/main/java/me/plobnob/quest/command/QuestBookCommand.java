@@ -1,114 +1,260 @@
 package me.plobnob.quest.command;
 
+import com.mojang.brigadier.Command;
+import com.mojang.brigadier.arguments.StringArgumentType;
+import com.mojang.brigadier.builder.LiteralArgumentBuilder;
+import com.mojang.brigadier.context.CommandContext;
+import com.mojang.brigadier.tree.LiteralCommandNode;
+import io.papermc.paper.command.brigadier.CommandSourceStack;
+import io.papermc.paper.command.brigadier.Commands;
 import lombok.RequiredArgsConstructor;
 import me.plobnob.quest.listener.QuestBookClickEvent;
 import me.plobnob.quest.listener.QuestBookUpdatedEvent;
+import me.plobnob.quest.metrics.LatencyHistogram;
+import me.plobnob.quest.metrics.QuestMetrics;
+import me.plobnob.quest.provider.PlaceholderProvider;
+import me.plobnob.quest.provider.PlaceholderProvider.PlaceholderTiming;
 import me.plobnob.quest.provider.Quest;
+import me.plobnob.quest.provider.QuestCatalogueIndex;
+import me.plobnob.quest.provider.QuestCatalogueIndex.Filter;
 import me.plobnob.quest.provider.QuestProvider;
+import me.plobnob.quest.provider.QuestSort;
+import me.plobnob.quest.provider.QuestTransfer;
+import me.plobnob.quest.util.ComponentCache;
 import me.plobnob.quest.util.TextFormatter;
 import me.plobnob.quest.validation.PermissionValidator;
-import org.bukkit.command.Command;
-import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
-import org.bukkit.inventory.meta.BookMeta;
-import org.jetbrains.annotations.NotNull;
 
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
 
 import static me.plobnob.quest.util.PluginConstants.*;
 
 /**
  * A handler class for the questbook command.
- * Includes opening, creating, editing and deleting quests.
+ * Includes opening, browsing, creating, editing and deleting quests.
+ * The command is registered as a brigadier tree so clients parse subcommands and fields locally.
  */
 @RequiredArgsConstructor
-public class QuestBookCommand implements CommandExecutor, PermissionValidator, TextFormatter {
+public class QuestBookCommand implements PermissionValidator, TextFormatter {
+
+    // Tags are given as a list separated by spaces or commas
+    private static final Pattern TAG_SEPARATOR = Pattern.compile("[\\s,]+");
 
     // Quest book providers (set by lombok)
     private final QuestBookClickEvent questBookClickEvent;
     private final QuestBookUpdatedEvent questBookUpdatedEvent;
     private final QuestProvider questProvider;
+    private final QuestBookCompleter questBookCompleter;
+    private final PlaceholderProvider placeholderProvider;
+    private final QuestTransfer questTransfer;
+    private final QuestMetrics metrics;
+
+    /**
+     * Function to build the brigadier command tree for the questbook command.
+     * @return The root command node
+     */
+    public LiteralCommandNode<CommandSourceStack> createCommand() {
+        return Commands.literal(CMD_QUESTBOOK)
+                .requires(source -> source.getSender().hasPermission(PERM_QUESTBOOK))
+                .executes(context -> handled(callOpen(sender(context))))
+                .then(Commands.literal("open")
+                        .requires(source -> source.getSender().hasPermission(PERM_QUESTBOOK_OPEN))
+                        .executes(context -> handled(callOpen(sender(context))))
+                        .then(Commands.argument("category", StringArgumentType.word())
+                                .executes(context -> handled(callOpenCategory(sender(context), StringArgumentType.getString(context, "category"))))))
+                .then(Commands.literal("tagged")
+                        .requires(source -> source.getSender().hasPermission(PERM_QUESTBOOK_OPEN))
+                        .executes(context -> handled(taggedUsage(sender(context))))
+                        .then(Commands.argument("tags", StringArgumentType.greedyString())
+                                .executes(context -> handled(callTagged(sender(context), StringArgumentType.getString(context, "tags"))))))
+                .then(Commands.literal("search")
+                        .requires(source -> source.getSender().hasPermission(PERM_QUESTBOOK_OPEN))
+                        .executes(context -> handled(searchUsage(sender(context))))
+                        .then(Commands.argument("terms", StringArgumentType.greedyString())
+                                .executes(context -> handled(callSearch(sender(context), StringArgumentType.getString(context, "terms"))))))
+                .then(Commands.literal("edit")
+                        .requires(source -> source.getSender().hasPermission(PERM_QUESTBOOK_EDIT))
+                        .executes(context -> handled(editUsage(sender(context))))
+                        .then(Commands.argument("quest", StringArgumentType.string())
+                                .suggests(questBookCompleter::suggestEditableQuests)
+                                .executes(context -> handled(editUsage(sender(context))))
+                                .then(editField("name"))
+                                .then(editField("displayname"))
+                                // Brigadier literals are case-sensitive - keep the camel-case spelling of older usage
+                                .then(editField("displayName"))
+                                .then(editField("author"))
+                                .then(editField("difficulty"))
+                                .then(editField("description"))
+                                .then(editField("category"))
+                                .then(editField("tags"))
+                                .then(Commands.literal("itemstack")
+                                        .executes(context -> handled(callEdit(sender(context), StringArgumentType.getString(context, "quest"), "itemstack", ""))))
+                                .then(Commands.literal("pages")
+                                        .executes(context -> handled(callEdit(sender(context), StringArgumentType.getString(context, "quest"), "pages", ""))))))
+                .then(Commands.literal("create")
+                        .requires(source -> source.getSender().hasPermission(PERM_QUESTBOOK_CREATE))
+                        .executes(context -> handled(createUsage(sender(context))))
+                        .then(Commands.argument("name", StringArgumentType.greedyString())
+                                .executes(context -> handled(callCreate(sender(context), StringArgumentType.getString(context, "name"))))))
+                .then(Commands.literal("delete")
+                        .requires(source -> source.getSender().hasPermission(PERM_QUESTBOOK_DELETE))
+                        .executes(context -> handled(deleteUsage(sender(context))))
+                        .then(Commands.argument("quest", StringArgumentType.string())
+                                .suggests(questBookCompleter::suggestDeletableQuests)
+                                .executes(context -> handled(callDelete(sender(context), StringArgumentType.getString(context, "quest"))))))
+                .then(Commands.literal("stats")
+                        .requires(source -> source.getSender().hasPermission(PERM_QUESTBOOK_STATS))
+                        .executes(context -> handled(callStats(sender(context)))))
+                .then(Commands.literal("export")
+                        .requires(source -> source.getSender().hasPermission(PERM_QUESTBOOK_EXPORT))
+                        .executes(context -> handled(exportUsage(sender(context))))
+                        .then(Commands.argument("file", StringArgumentType.word())
+                                .executes(context -> handled(callExport(sender(context), StringArgumentType.getString(context, "file"))))))
+                .then(Commands.literal("import")
+                        .requires(source -> source.getSender().hasPermission(PERM_QUESTBOOK_IMPORT))
+                        .executes(context -> handled(importUsage(sender(context))))
+                        .then(Commands.argument("file", StringArgumentType.word())
+                                .executes(context -> handled(callImport(sender(context), StringArgumentType.getString(context, "file"), false)))
+                                .then(Commands.literal("merge")
+                                        .executes(context -> handled(callImport(sender(context), StringArgumentType.getString(context, "file"), false))))
+                                .then(Commands.literal("replace")
+                                        .executes(context -> handled(callImport(sender(context), StringArgumentType.getString(context, "file"), true))))))
+                .build();
+    }
+
+    /**
+     * Utility function to build the command branch for editing a field that takes a value.
+     * @param field The field name
+     * @return The field's command branch
+     */
+    private LiteralArgumentBuilder<CommandSourceStack> editField(String field) {
+        return Commands.literal(field)
+                .executes(context -> handled(fieldUsage(sender(context), field)))
+                .then(Commands.argument("value", StringArgumentType.greedyString())
+                        .executes(context -> handled(callEdit(sender(context),
+                                StringArgumentType.getString(context, "quest"),
+                                field,
+                                StringArgumentType.getString(context, "value")))));
+    }
 
     /**
-     * Handler for the questbook command
+     * Utility function to handle opening the questbooks UI
      * @param sender The command sender
-     * @param command The command used
-     * @param label The command label
-     * @param args Any args passed to the command
      * @return Whether the command call was handled
      */
-    @Override
-    public boolean onCommand(@NotNull CommandSender sender, @NotNull Command command, @NotNull String label, @NotNull String @NotNull [] args) {
-        if (!sender.hasPermission(PERM_QUESTBOOK))
+    private boolean callOpen(CommandSender sender) {
+        if (!sender.hasPermission(PERM_QUESTBOOK_OPEN))
             return noPermission(sender);
 
-        if (args.length == 0)
-            return callOpen(sender);
+        if (!(sender instanceof Player player))
+            return notPlayer(sender);
 
-        return switch (args[0].toLowerCase()) {
-            case "open" -> callOpen(sender);
-            case "edit" -> callEdit(sender, args);
-            case "create" -> callCreate(sender, args);
-            case "delete" -> callDelete(sender, args);
-            default -> noCommand(sender);
-        };
+        questBookClickEvent.openInventory(player);
+        return true;
     }
 
     /**
-     * Utility function to handle opening the questbooks UI
+     * Utility function to handle opening a single category in the questbooks UI
      * @param sender The command sender
+     * @param category The category name
      * @return Whether the command call was handled
      */
-    private boolean callOpen(CommandSender sender) {
+    private boolean callOpenCategory(CommandSender sender, String category) {
         if (!sender.hasPermission(PERM_QUESTBOOK_OPEN))
             return noPermission(sender);
 
         if (!(sender instanceof Player player))
             return notPlayer(sender);
 
-        questBookClickEvent.openInventory(player);
+        String name = category.toLowerCase(Locale.ROOT);
+        if (!QuestCatalogueIndex.isValidTag(name))
+            return invalidTags(sender);
+
+        questBookClickEvent.openFiltered(player, new Filter(name, Set.of(), QuestSort.CATALOGUE));
         return true;
     }
 
     /**
-     * Utility function to handle editing a quest
+     * Utility function to handle opening the quests with every given tag in the questbooks UI
      * @param sender The command sender
-     * @param args Any args passed to the edit command
+     * @param tags The tags, separated by spaces or commas
      * @return Whether the command call was handled
      */
-    private boolean callEdit(CommandSender sender, String[] args) {
-        if (!sender.hasPermission(PERM_QUESTBOOK_EDIT))
+    private boolean callTagged(CommandSender sender, String tags) {
+        if (!sender.hasPermission(PERM_QUESTBOOK_OPEN))
             return noPermission(sender);
 
-        if (args.length < 3) {
-            sender.sendMessage(format("<yellow>Usage: /questbook edit <questname> <displayName | author | difficulty | description | itemstack | pages> [value]</yellow>"));
-            return true;
-        }
+        if (!(sender instanceof Player player))
+            return notPlayer(sender);
 
-        if (args.length < 4 && List.of("displayname", "author", "difficulty", "description").contains(args[2].toLowerCase())) {
-            sender.sendMessage(format("<yellow>Usage: /questbook edit <questname> <%s> <value>", args[2].toLowerCase()));
-            return true;
-        }
+        List<String> parsed = parseTags(tags);
+        if (parsed == null || parsed.isEmpty())
+            return invalidTags(sender);
 
-        Quest targetQuest = questProvider.getQuests()
-                .stream()
-                .filter(quest -> args[1].equalsIgnoreCase(quest.getName()))
-                .findFirst()
-                .orElse(null);
+        questBookClickEvent.openFiltered(player, new Filter(null, Set.copyOf(parsed), QuestSort.CATALOGUE));
+        return true;
+    }
+
+    /**
+     * Utility function to handle searching for quests and opening the results in the questbooks UI
+     * @param sender The command sender
+     * @param terms The search terms
+     * @return Whether the command call was handled
+     */
+    private boolean callSearch(CommandSender sender, String terms) {
+        if (!sender.hasPermission(PERM_QUESTBOOK_OPEN))
+            return noPermission(sender);
+
+        if (!(sender instanceof Player player))
+            return notPlayer(sender);
+
+        if (!questBookClickEvent.openSearch(player, terms))
+            sender.sendMessage(format("<red>No quests were found matching</red> <gray>%s</gray><red>!</red>", terms));
+        return true;
+    }
+
+    /**
+     * Utility function to handle editing a quest
+     * @param sender The command sender
+     * @param questName The name of the quest to edit
+     * @param field The field to edit
+     * @param lastArgument The new value for the field (empty for itemstack and pages)
+     * @return Whether the command call was handled
+     */
+    private boolean callEdit(CommandSender sender, String questName, String field, String lastArgument) {
+        if (!sender.hasPermission(PERM_QUESTBOOK_EDIT))
+            return noPermission(sender);
 
+        Quest targetQuest = questProvider.getQuest(questName);
         if (targetQuest == null) {
-            sender.sendMessage(format("<red>Error: Could not find the quest </red><gray>%s</gray><red>!</red>", args[2]));
+            sender.sendMessage(format("<red>Error: Could not find the quest </red><gray>%s</gray><red>!</red>", questName));
             return true;
         }
 
-        String lastArgument = String.join(" ", Arrays.copyOfRange(args, 3, args.length));
-
-        switch (args[2].toLowerCase()) {
+        switch (field.toLowerCase()) {
+            case "name" -> {
+                String dirtyName = lastArgument.replace(" ", "_");
+                if (dirtyName.length() > 48) {
+                    sender.sendMessage(format("<red>Error: Name cannot be more than 48 characters in length!</red>"));
+                    return true;
+                }
+                if (!questProvider.renameQuest(targetQuest, dirtyName)) {
+                    sender.sendMessage(format("<red>Error: A quest with the name <gray>%s</gray> already exists!</red>", dirtyName));
+                    return true;
+                }
+                sender.sendMessage(format("<yellow>Name was successfully changed!</yellow>"));
+                return true;
+            }
             case "displayname" -> {
                 targetQuest.setDisplayName(lastArgument);
                 sender.sendMessage(format("<yellow>Display name was successfully changed!</yellow>"));
@@ -125,6 +271,24 @@ public class QuestBookCommand implements CommandExecutor, PermissionValidator, T
                 targetQuest.setDescription(lastArgument);
                 sender.sendMessage(format("<yellow>Description was successfully changed!</yellow>"));
             }
+            case "category" -> {
+                String category = lastArgument.trim().toLowerCase(Locale.ROOT);
+                if (category.equals("none")) {
+                    targetQuest.setCategory(null);
+                } else if (QuestCatalogueIndex.isValidTag(category)) {
+                    targetQuest.setCategory(category);
+                } else {
+                    return invalidTags(sender);
+                }
+                sender.sendMessage(format("<yellow>Category was successfully changed!</yellow>"));
+            }
+            case "tags" -> {
+                List<String> tags = lastArgument.trim().equalsIgnoreCase("none") ? List.of() : parseTags(lastArgument);
+                if (tags == null)
+                    return invalidTags(sender);
+                targetQuest.setTags(tags.isEmpty() ? null : tags);
+                sender.sendMessage(format("<yellow>Tags were successfully changed!</yellow>"));
+            }
             case "itemstack" -> {
                 if (!(sender instanceof Player player))
                     return notPlayer(sender);
@@ -137,66 +301,55 @@ public class QuestBookCommand implements CommandExecutor, PermissionValidator, T
                 if (!(sender instanceof Player player))
                     return notPlayer(sender);
 
-                ItemStack book = targetQuest.writableBook();
-                if (book == null || !(book.getItemMeta() instanceof BookMeta bookMeta)) {
-                    sender.sendMessage(format("<red>Error: Could not generate an editable book for this quest!</red>"));
+                ItemStack book = questBookUpdatedEvent.openSession(player, targetQuest);
+                if (book == null) {
+                    sender.sendMessage(format("<red>Error: Could not generate an editable book for this quest - finish or drop your other quest books first!</red>"));
                     return true;
                 }
 
                 Map<Integer, ItemStack> added = player.getInventory().addItem(book);
                 if (!added.isEmpty()) {
+                    questBookUpdatedEvent.closeSession(book);
                     sender.sendMessage(format("<red>Error: Please make space in your inventory to receive an editable book for this quest!</red>"));
                     return true;
                 }
 
                 sender.sendMessage(format("<yellow>A book and quill has been added to your inventory.</yellow>"));
                 sender.sendMessage(format("<yellow>Editing this book will update the quest contents.</yellow>"));
-                sender.sendMessage(format("<yellow>Signing the book will finalise this edit session and remove the book.</yellow>"));
-                questBookUpdatedEvent.getDistributedBooks().put(bookMeta, targetQuest);
+                sender.sendMessage(format("<yellow>Signing or dropping the book will finalise this edit session and remove the book.</yellow>"));
                 return true;
             }
             default -> {
-                sender.sendMessage(format("<yellow>Usage: /questbook edit <questname> <displayName | author | difficulty | itemstack | pages> [value]</yellow>"));
-                return true;
+                return editUsage(sender);
             }
         }
 
-        questProvider.saveQuests();
+        questProvider.saveQuest(targetQuest);
         return true;
     }
 
     /**
      * Utility function to handle creating a quest
      * @param sender The command sender
-     * @param args Any args passed to the create command
+     * @param questName The name of the quest to create
      * @return Whether the command call was handled
      */
-    private boolean callCreate(CommandSender sender, String[] args) {
+    private boolean callCreate(CommandSender sender, String questName) {
         if (!sender.hasPermission(PERM_QUESTBOOK_CREATE))
             return noPermission(sender);
 
         if (!(sender instanceof Player player))
             return notPlayer(sender);
 
-        if (args.length < 2) {
-            sender.sendMessage(format("<yellow>Usage: /questbook create <questname></yellow>"));
-            return true;
-        }
-
-        String questName = String.join(" ", Arrays.copyOfRange(args, 1, args.length));
         String dirtyName = questName.replace(" ", "_");
         if (dirtyName.length() > 48) {
             sender.sendMessage(format("<red>Error: Name cannot be more than 84 characters in length!</red>"));
             return true;
         }
 
-        Optional<Quest> foundQuest = questProvider.getQuests()
-                .stream()
-                .filter(quest -> dirtyName.equalsIgnoreCase(quest.getName()))
-                .findFirst();
-
-        if (foundQuest.isPresent()) {
-            sender.sendMessage(format("<red>Error: A quest with the name <gray>%s</gray> already exists!</red>", foundQuest.get().getName()));
+        Quest foundQuest = questProvider.getQuest(dirtyName);
+        if (foundQuest != null) {
+            sender.sendMessage(format("<red>Error: A quest with the name <gray>%s</gray> already exists!</red>", foundQuest.getName()));
             return true;
         }
 
@@ -220,28 +373,272 @@ public class QuestBookCommand implements CommandExecutor, PermissionValidator, T
     /**
      * Utility function to handle deleting a quest
      * @param sender The command sender
-     * @param args Any args passed to the delete command
+     * @param questName The name of the quest to delete
      * @return Whether the command call was handled
      */
-    private boolean callDelete(CommandSender sender, String[] args) {
+    private boolean callDelete(CommandSender sender, String questName) {
         if (!sender.hasPermission(PERM_QUESTBOOK_DELETE))
             return noPermission(sender);
 
-        if (args.length < 2) {
-            sender.sendMessage(format("<yellow>Usage: /questbook delete <questname></yellow>"));
+        Quest quest = questProvider.getQuest(questName);
+        if (quest != null) {
+            sender.sendMessage(format("<yellow>Successfully deleted the quest </yellow><gray>%s</gray><yellow>!</yellow>", quest.getName()));
+            questProvider.unregisterQuest(quest);
+        }
+        return true;
+    }
+
+    /**
+     * Utility function to handle showing runtime metrics
+     * @param sender The command sender
+     * @return Whether the command call was handled
+     */
+    private boolean callStats(CommandSender sender) {
+        if (!sender.hasPermission(PERM_QUESTBOOK_STATS))
+            return noPermission(sender);
+
+        if (!metrics.isEnabled()) {
+            sender.sendMessage(format("<red>Error: Metrics are disabled - set metrics.enabled in the config to collect them!</red>"));
             return true;
         }
 
-        String questName = args[1];
-        questProvider.getQuests()
-                .stream()
-                .filter(quest -> questName.equalsIgnoreCase(quest.getName()))
-                .findFirst()
-                .ifPresent(quest -> {
-                    sender.sendMessage(format("<yellow>Successfully deleted the quest </yellow><gray>%s</gray><yellow>!</yellow>", quest.getName()));
-                    questProvider.unregisterQuest(quest);
-                });
+        sender.sendMessage(format("<yellow>Questbook stats</yellow> <gray>(latencies in ms: avg / p50 / p95 / p99 / max)</gray>"));
+        for (QuestMetrics.Operation operation : QuestMetrics.Operation.values()) {
+            LatencyHistogram histogram = metrics.getHistogram(operation);
+            sender.sendMessage(format("<gray>%s:</gray> %d <dark_gray>|</dark_gray> %.2f / %.2f / %.2f / %.2f / %.2f",
+                    operation.getKey(), histogram.getCount(), histogram.getAverageMillis(), histogram.getP50Millis(),
+                    histogram.getP95Millis(), histogram.getP99Millis(), histogram.getMaxMillis()));
+        }
+        sender.sendMessage(format("<gray>Quests:</gray> %d <dark_gray>|</dark_gray> <gray>Open questbooks:</gray> %d <dark_gray>|</dark_gray> <gray>Edit sessions:</gray> %d",
+                metrics.getCatalogueSize(), metrics.getOpenQuestBooks(), metrics.getEditSessions()));
+        sender.sendMessage(format("<gray>Component cache:</gray> %d hits <dark_gray>|</dark_gray> %d misses <dark_gray>|</dark_gray> %d uncacheable <dark_gray>|</dark_gray> %d entries",
+                ComponentCache.getHits(), ComponentCache.getMisses(), ComponentCache.getUncacheable(), ComponentCache.size()));
+
+        // Slowest placeholders by average resolution time
+        List<Map.Entry<String, PlaceholderTiming>> slowest = placeholderProvider.getTimings().entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<String, PlaceholderTiming> entry) -> entry.getValue().getAverageNanos()).reversed())
+                .limit(5)
+                .toList();
+        for (Map.Entry<String, PlaceholderTiming> entry : slowest) {
+            PlaceholderTiming timing = entry.getValue();
+            sender.sendMessage(format("<gray>Placeholder</gray> %s<gray>:</gray> %d <dark_gray>|</dark_gray> %.2f avg / %.2f max",
+                    entry.getKey(), timing.getCount(),
+                    timing.getAverageNanos() / (double) TimeUnit.MILLISECONDS.toNanos(1),
+                    timing.getMaxNanos() / (double) TimeUnit.MILLISECONDS.toNanos(1)));
+        }
         return true;
     }
 
+    /**
+     * Utility function to handle exporting every quest to a transfer file
+     * @param sender The command sender
+     * @param fileName The transfer file name
+     * @return Whether the command call was handled
+     */
+    private boolean callExport(CommandSender sender, String fileName) {
+        if (!sender.hasPermission(PERM_QUESTBOOK_EXPORT))
+            return noPermission(sender);
+
+        if (!QuestTransfer.isValidFileName(fileName))
+            return invalidFileName(sender);
+
+        CompletableFuture<Integer> export = questTransfer.exportQuests(fileName);
+        if (export == null)
+            return transferRunning(sender);
+
+        sender.sendMessage(format("<yellow>Exporting quests to</yellow> <gray>%s</gray><yellow>...</yellow>", fileName));
+        export.whenComplete((count, ex) -> {
+            if (ex != null) {
+                sender.sendMessage(format("<red>Error: Failed to export quests - see the console for details!</red>"));
+                return;
+            }
+            sender.sendMessage(format("<yellow>Successfully exported</yellow> <gray>%d</gray> <yellow>quests to</yellow> <gray>%s</gray><yellow>!</yellow>", count, fileName));
+        });
+        return true;
+    }
+
+    /**
+     * Utility function to handle importing quests from a transfer file
+     * @param sender The command sender
+     * @param fileName The transfer file name
+     * @param replace Whether quests missing from the file are deleted
+     * @return Whether the command call was handled
+     */
+    private boolean callImport(CommandSender sender, String fileName, boolean replace) {
+        if (!sender.hasPermission(PERM_QUESTBOOK_IMPORT))
+            return noPermission(sender);
+
+        if (!QuestTransfer.isValidFileName(fileName))
+            return invalidFileName(sender);
+
+        CompletableFuture<QuestTransfer.ImportResult> imported = questTransfer.importQuests(fileName, replace);
+        if (imported == null)
+            return transferRunning(sender);
+
+        sender.sendMessage(format("<yellow>Importing quests from</yellow> <gray>%s</gray> <yellow>(%s)...</yellow>", fileName, replace ? "replace" : "merge"));
+        imported.whenComplete((result, ex) -> {
+            if (ex != null) {
+                sender.sendMessage(format("<red>Error: Failed to read quests from</red> <gray>%s</gray><red> - see the console for details!</red>", fileName));
+                return;
+            }
+            if (result.changes() == null) {
+                sender.sendMessage(format("<red>Error: Nothing was imported -</red> <gray>%d</gray> <red>invalid records were found:</red>", result.errorCount()));
+                for (String error : result.errors())
+                    sender.sendMessage(format("<gray>%s</gray>", error));
+                if (result.errorCount() > result.errors().size())
+                    sender.sendMessage(format("<gray>...and %d more</gray>", result.errorCount() - result.errors().size()));
+                return;
+            }
+            sender.sendMessage(format("<yellow>Successfully imported</yellow> <gray>%d</gray> <yellow>quests - %d added, %d removed, %d changed!</yellow>",
+                    result.imported(), result.changes().added(), result.changes().removed(), result.changes().changed()));
+        });
+        return true;
+    }
+
+    /**
+     * Utility function to split a list of tags, separated by spaces or commas, into lower case tags
+     * @param text The tags
+     * @return The distinct tags in order, or null if any tag is invalid
+     */
+    private static List<String> parseTags(String text) {
+        List<String> tags = new ArrayList<>();
+        for (String tag : TAG_SEPARATOR.split(text.trim().toLowerCase(Locale.ROOT))) {
+            if (tag.isEmpty() || tags.contains(tag))
+                continue;
+            if (!QuestCatalogueIndex.isValidTag(tag))
+                return null;
+            tags.add(tag);
+        }
+        return tags;
+    }
+
+    /**
+     * Utility function to send the usage for the edit command
+     * @param sender The command sender
+     * @return true - command was handled
+     */
+    private boolean editUsage(CommandSender sender) {
+        sender.sendMessage(format("<yellow>Usage: /questbook edit <questname> <name | displayname | author | difficulty | description | category | tags | itemstack | pages> [value]</yellow>"));
+        return true;
+    }
+
+    /**
+     * Utility function to send the usage for editing a field that takes a value
+     * @param sender The command sender
+     * @param field The field name
+     * @return true - command was handled
+     */
+    private boolean fieldUsage(CommandSender sender, String field) {
+        sender.sendMessage(format("<yellow>Usage: /questbook edit <questname> <%s> <value>", field.toLowerCase()));
+        return true;
+    }
+
+    /**
+     * Utility function to send the usage for the create command
+     * @param sender The command sender
+     * @return true - command was handled
+     */
+    private boolean createUsage(CommandSender sender) {
+        sender.sendMessage(format("<yellow>Usage: /questbook create <questname></yellow>"));
+        return true;
+    }
+
+    /**
+     * Utility function to send the usage for the delete command
+     * @param sender The command sender
+     * @return true - command was handled
+     */
+    private boolean deleteUsage(CommandSender sender) {
+        sender.sendMessage(format("<yellow>Usage: /questbook delete <questname></yellow>"));
+        return true;
+    }
+
+    /**
+     * Utility function to send the usage for the search command
+     * @param sender The command sender
+     * @return true - command was handled
+     */
+    private boolean searchUsage(CommandSender sender) {
+        sender.sendMessage(format("<yellow>Usage: /questbook search <terms></yellow>"));
+        return true;
+    }
+
+    /**
+     * Utility function to send the usage for the tagged command
+     * @param sender The command sender
+     * @return true - command was handled
+     */
+    private boolean taggedUsage(CommandSender sender) {
+        sender.sendMessage(format("<yellow>Usage: /questbook tagged <tags></yellow>"));
+        return true;
+    }
+
+    /**
+     * Utility function to send an error for an invalid tag or category name
+     * @param sender The command sender
+     * @return true - command was handled
+     */
+    private boolean invalidTags(CommandSender sender) {
+        sender.sendMessage(format("<red>Error: Tags and categories may only contain letters, digits, dashes and underscores (up to 32 characters)!</red>"));
+        return true;
+    }
+
+    /**
+     * Utility function to send the usage for the export command
+     * @param sender The command sender
+     * @return true - command was handled
+     */
+    private boolean exportUsage(CommandSender sender) {
+        sender.sendMessage(format("<yellow>Usage: /questbook export <filename></yellow>"));
+        return true;
+    }
+
+    /**
+     * Utility function to send the usage for the import command
+     * @param sender The command sender
+     * @return true - command was handled
+     */
+    private boolean importUsage(CommandSender sender) {
+        sender.sendMessage(format("<yellow>Usage: /questbook import <filename> [merge | replace]</yellow>"));
+        return true;
+    }
+
+    /**
+     * Utility function to send the error for an invalid transfer file name
+     * @param sender The command sender
+     * @return true - command was handled
+     */
+    private boolean invalidFileName(CommandSender sender) {
+        sender.sendMessage(format("<red>Error: File names may only contain letters, numbers, dashes and underscores!</red>"));
+        return true;
+    }
+
+    /**
+     * Utility function to send the error for a transfer already in progress
+     * @param sender The command sender
+     * @return true - command was handled
+     */
+    private boolean transferRunning(CommandSender sender) {
+        sender.sendMessage(format("<red>Error: Another import or export is still running!</red>"));
+        return true;
+    }
+
+    /**
+     * Utility function to get the sender of a brigadier command
+     * @param context The command context
+     * @return The command sender
+     */
+    private static CommandSender sender(CommandContext<CommandSourceStack> context) {
+        return context.getSource().getSender();
+    }
+
+    /**
+     * Utility function to map a handled command call onto a brigadier result
+     * @param handled Whether the command call was handled
+     * @return The brigadier command result
+     */
+    private static int handled(boolean handled) {
+        return handled ? Command.SINGLE_SUCCESS : 0;
+    }
+
 }
@@ -1,62 +1,125 @@
 package me.plobnob.quest.command;
 
-import lombok.RequiredArgsConstructor;
+import com.mojang.brigadier.arguments.StringArgumentType;
+import com.mojang.brigadier.context.CommandContext;
+import com.mojang.brigadier.suggestion.Suggestions;
+import com.mojang.brigadier.suggestion.SuggestionsBuilder;
+import io.papermc.paper.command.brigadier.CommandSourceStack;
+import me.plobnob.quest.metrics.QuestMetrics;
+import me.plobnob.quest.provider.CatalogueListener;
 import me.plobnob.quest.provider.Quest;
-import me.plobnob.quest.provider.QuestProvider;
-import me.plobnob.quest.validation.PermissionValidator;
-import org.bukkit.command.Command;
+import me.plobnob.quest.util.PrefixTrie;
 import org.bukkit.command.CommandSender;
-import org.bukkit.command.TabCompleter;
-import org.jetbrains.annotations.NotNull;
-import org.jetbrains.annotations.Nullable;
 
-import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
 
-import static java.util.Collections.emptyList;
-import static me.plobnob.quest.util.PluginConstants.PERM_QUESTBOOK;
+import static me.plobnob.quest.util.PluginConstants.PERM_QUESTBOOK_DELETE;
+import static me.plobnob.quest.util.PluginConstants.PERM_QUESTBOOK_EDIT;
+import static me.plobnob.quest.util.PluginConstants.PERM_QUESTBOOK_VIEW_ALL;
 
 /**
- * An autocomplete handler class for the questbook command.
+ * An autocomplete handler class for quest name arguments of the questbook command.
+ * Names are suggested from a prefix trie kept in sync with the quest provider and filtered by the sender's rights over the
+ * argument - view rights for quests to read, edit or delete rights for quests to change.
  */
-@RequiredArgsConstructor
-public class QuestBookCompleter implements TabCompleter, PermissionValidator {
+public class QuestBookCompleter implements CatalogueListener {
 
-    // Quest provider (set by lombok)
-    private final QuestProvider questProvider;
+    // Maximum number of quest names suggested for a single keystroke
+    private static final int MAX_SUGGESTIONS = 100;
+
+    // Quest names by prefix - kept in sync through catalogue events
+    private final PrefixTrie<Quest> questNames = new PrefixTrie<>();
+
+    // Plugin metrics
+    private final QuestMetrics metrics;
 
     /**
-     *
-     * Handler for the questbook command
-     * @param sender The command sender
-     * @param cmd The command used
-     * @param alias The alias used
-     * @param args Any args passed to the command
-     * @return A list of all available autocomplete items
+     * Default constructor.
+     * @param metrics The plugin metrics
      */
+    public QuestBookCompleter(QuestMetrics metrics) {
+        this.metrics = metrics;
+    }
+
     @Override
-    public @Nullable List<String> onTabComplete(@NotNull CommandSender sender, @NotNull Command cmd, @NotNull String alias, @NotNull String @NotNull [] args) {
-        if (!sender.hasPermission(PERM_QUESTBOOK))
-            return emptyList();
-
-        if (args.length == 1) {
-            return List.of("open", "edit", "create", "delete");
-        }
-
-        return switch (args[0].toLowerCase()) {
-            case "open", "create" -> emptyList();
-            case "edit" -> {
-                if (args.length == 2)
-                    yield questProvider.getQuests().stream().map(Quest::getName).toList();
-                if (args.length == 3)
-                    yield List.of("displayName", "author", "difficulty", "description", "itemstack", "pages");
-                yield emptyList();
-            }
-            case "delete" -> {
-                if (args.length == 2)
-                    yield questProvider.getQuests().stream().map(Quest::getName).toList();
-                yield emptyList();
-            }
-            default -> emptyList();
-        };
+    public void questRegistered(Quest quest) {
+        questNames.put(quest.getName(), quest);
     }
+
+    @Override
+    public void questUnregistered(Quest quest) {
+        questNames.remove(quest.getName());
+    }
+
+    @Override
+    public void questRenamed(Quest quest, String oldName) {
+        questNames.remove(oldName);
+        questNames.put(quest.getName(), quest);
+    }
+
+    /**
+     * Suggestion provider for quest name arguments.
+     * @param context The command context
+     * @param builder The suggestions builder, positioned at the argument being typed
+     * @return The quest names matching the typed prefix which the sender can view
+     */
+    public CompletableFuture<Suggestions> suggestQuests(CommandContext<CommandSourceStack> context, SuggestionsBuilder builder) {
+        return suggestQuests(context.getSource().getSender(), builder);
+    }
+
+    /**
+     * Function to suggest the quest names matching the typed prefix which a sender can view.
+     * @param sender The sender typing the command
+     * @param builder The suggestions builder, positioned at the argument being typed
+     * @return The quest name suggestions
+     */
+    public CompletableFuture<Suggestions> suggestQuests(CommandSender sender, SuggestionsBuilder builder) {
+        boolean viewAll = sender.hasPermission(PERM_QUESTBOOK_VIEW_ALL);
+        return suggest(builder, quest -> viewAll || sender.hasPermission(quest.getViewPermission()));
+    }
+
+    /**
+     * Suggestion provider for quest name arguments of the edit command.
+     * @param context The command context
+     * @param builder The suggestions builder, positioned at the argument being typed
+     * @return The quest names matching the typed prefix, if the sender can edit quests
+     */
+    public CompletableFuture<Suggestions> suggestEditableQuests(CommandContext<CommandSourceStack> context, SuggestionsBuilder builder) {
+        boolean edit = context.getSource().getSender().hasPermission(PERM_QUESTBOOK_EDIT);
+        return suggest(builder, quest -> edit);
+    }
+
+    /**
+     * Suggestion provider for quest name arguments of the delete command.
+     * @param context The command context
+     * @param builder The suggestions builder, positioned at the argument being typed
+     * @return The quest names matching the typed prefix, if the sender can delete quests
+     */
+    public CompletableFuture<Suggestions> suggestDeletableQuests(CommandContext<CommandSourceStack> context, SuggestionsBuilder builder) {
+        boolean delete = context.getSource().getSender().hasPermission(PERM_QUESTBOOK_DELETE);
+        return suggest(builder, quest -> delete);
+    }
+
+    /**
+     * Utility function to suggest the quest names matching the typed prefix which pass a filter.
+     * @param builder The suggestions builder, positioned at the argument being typed
+     * @param filter The filter of quests the sender may name in the argument
+     * @return The quest name suggestions
+     */
+    private CompletableFuture<Suggestions> suggest(SuggestionsBuilder builder, Predicate<Quest> filter) {
+        long start = metrics.start();
+
+        String prefix = builder.getRemaining();
+        if (prefix.startsWith("\""))
+            prefix = prefix.substring(1);
+
+        questNames.collect(prefix,
+                filter,
+                MAX_SUGGESTIONS,
+                quest -> builder.suggest(StringArgumentType.escapeIfRequired(quest.getName())));
+        metrics.record(QuestMetrics.Operation.TAB_COMPLETE, start);
+        return builder.buildFuture();
+    }
+
 }
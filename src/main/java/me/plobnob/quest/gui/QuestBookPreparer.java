@@ -0,0 +1,323 @@
+package me.plobnob.quest.gui;
+
+import me.plobnob.quest.gui.QuestBookTemplates.Page;
+import me.plobnob.quest.metrics.QuestMetrics;
+import me.plobnob.quest.provider.PlaceholderProvider;
+import me.plobnob.quest.provider.Quest;
+import me.plobnob.quest.provider.QuestCatalogueIndex;
+import me.plobnob.quest.provider.QuestCatalogueIndex.Filter;
+import me.plobnob.quest.provider.QuestProvider;
+import me.plobnob.quest.provider.QuestSearchIndex;
+import me.plobnob.quest.util.PageTemplate;
+import me.plobnob.quest.validation.QuestVisibilityCache;
+import me.plobnob.quest.validation.QuestVisibilityCache.Visibility;
+import net.kyori.adventure.inventory.Book;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static me.plobnob.quest.util.PluginConstants.PERM_QUESTBOOK_VIEW_ALL;
+
+/**
+ * A two-phase pipeline preparing questbook views and books off the server thread.
+ * Filtering, display stack rendering and page parsing run on a worker pool. Permission checks (visibility and searches),
+ * placeholder resolution (PlaceholderAPI expansions expect the server thread) and the final open run on the server
+ * thread - workers are only handed the immutable visibility.
+ * Results are dropped if the player has logged out, and views are prepared again if the catalogue changed mid-flight.
+ */
+public class QuestBookPreparer {
+
+    // Catalogue changes during preparation are retried this many times before preparing on the server thread
+    private static final int MAX_ATTEMPTS = 3;
+    // Searches show at most this many of the best matching quests
+    private static final int MAX_SEARCH_RESULTS = QuestBookTemplates.PAGE_SIZE * 10;
+
+    // Member variables
+    private final Plugin plugin;
+    private final QuestProvider questProvider;
+    private final PlaceholderProvider placeholderProvider;
+    private final QuestVisibilityCache visibilityCache;
+    private final QuestBookTemplates questBookTemplates;
+    private final QuestSearchIndex searchIndex;
+    private final QuestCatalogueIndex catalogueIndex;
+    private final QuestMetrics metrics;
+    private final ExecutorService workers;
+    private final Executor serverThread;
+
+    /**
+     * Default constructor.
+     * @param plugin The plugin instance
+     * @param questProvider The quest provider
+     * @param placeholderProvider The placeholder provider
+     * @param visibilityCache The visibility cache
+     * @param questBookTemplates The page templates
+     * @param searchIndex The quest search index
+     * @param catalogueIndex The quest tag, category and sort order index
+     * @param metrics The plugin metrics
+     * @param threads The number of worker threads
+     */
+    public QuestBookPreparer(Plugin plugin, QuestProvider questProvider, PlaceholderProvider placeholderProvider,
+                             QuestVisibilityCache visibilityCache, QuestBookTemplates questBookTemplates,
+                             QuestSearchIndex searchIndex, QuestCatalogueIndex catalogueIndex, QuestMetrics metrics,
+                             int threads) {
+        this.plugin = plugin;
+        this.questProvider = questProvider;
+        this.placeholderProvider = placeholderProvider;
+        this.visibilityCache = visibilityCache;
+        this.questBookTemplates = questBookTemplates;
+        this.searchIndex = searchIndex;
+        this.catalogueIndex = catalogueIndex;
+        this.metrics = metrics;
+
+        AtomicInteger count = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "SimpleQuestBook-Worker-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.serverThread = task -> {
+            if (plugin.isEnabled())
+                Bukkit.getScheduler().runTask(plugin, task);
+        };
+    }
+
+    /**
+     * Function to prepare the first page of the questbook GUI for a player - the category page if any quest has a
+     * category, otherwise the first page of every quest. Must be called on the server thread.
+     * @param player The player viewing the questbook
+     * @param page The page index of the category page - clamped to the available pages
+     * @param opener A consumer run on the server thread with the prepared view, if the player is still online
+     */
+    public void prepareHome(Player player, int page, Consumer<PreparedView> opener) {
+        if (catalogueIndex.hasCategories())
+            prepare(player, null, current -> buildCategories(current, page), opener, 1);
+        else
+            prepareView(player, null, 0, Filter.ALL, opener);
+    }
+
+    /**
+     * Function to prepare a page of the questbook GUI for a player. Must be called on the server thread.
+     * @param player The player viewing the questbook
+     * @param visibility The player's current visibility, or null to look it up
+     * @param page The page index - clamped to the available pages
+     * @param filter The quests to show and their order
+     * @param opener A consumer run on the server thread with the prepared view, if the player is still online
+     */
+    public void prepareView(Player player, Visibility visibility, int page, Filter filter, Consumer<PreparedView> opener) {
+        prepare(player, visibility, current -> buildView(current, page, filter), opener, 1);
+    }
+
+    /**
+     * Function to prepare a page of search results for a player, showing the matching quests they may view, best first.
+     * The search runs immediately on the server thread, so only the page itself is built on a worker.
+     * Must be called on the server thread.
+     * @param player The player searching
+     * @param query The search query
+     * @param page The page index - clamped to the available pages
+     * @param opener A consumer run on the server thread with the prepared view, if the player is still online
+     * @return Whether any quest matched - if not, nothing is prepared
+     */
+    public boolean prepareSearch(Player player, String query, int page, Consumer<PreparedView> opener) {
+        return prepareSearch(player, query, page, opener, 1);
+    }
+
+    /**
+     * Function to prepare a quest's content book for a player.
+     * Pages are compiled on a worker, placeholders are resolved on the server thread and the book is assembled on a worker.
+     * The book is dropped if the player logs out or the quest is unregistered before it is ready.
+     * @param player The player reading the quest
+     * @param quest The quest to read
+     * @param opener A consumer run on the server thread with the prepared book
+     */
+    public void prepareBook(Player player, Quest quest, Consumer<Book> opener) {
+        CompletableFuture.supplyAsync(() -> {
+                    long start = metrics.start();
+                    List<PageTemplate> compiled = quest.getCompiledPages();
+                    return new PreparedPages(compiled, null, metrics.elapsed(start));
+                }, workers)
+                .thenApplyAsync(pages -> player.isOnline()
+                        ? new PreparedPages(pages.compiled(), placeholderProvider.resolve(player, PageTemplate.getPlaceholders(pages.compiled())), pages.renderNanos())
+                        : null, serverThread)
+                .thenApplyAsync(pages -> {
+                    if (pages == null)
+                        return null;
+                    long start = metrics.start();
+                    Book book = quest.writeBook(pages.compiled(), pages.values());
+                    metrics.recordNanos(QuestMetrics.Operation.BOOK_RENDER, pages.renderNanos() + metrics.elapsed(start));
+                    return book;
+                }, workers)
+                .thenAcceptAsync(book -> {
+                    if (book != null && player.isOnline() && questProvider.getQuest(quest.getName()) == quest)
+                        opener.accept(book);
+                }, serverThread)
+                .exceptionally(this::logFailure);
+    }
+
+    /**
+     * Function to stop the worker pool (in the event of a disable) - any preparation in progress is abandoned.
+     */
+    public void close() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * Utility function to prepare a view, retrying if the catalogue changes before it reaches the server thread.
+     * The player's visibility is looked up here, on the server thread, as permission checks are not thread safe.
+     * @param player The player viewing the questbook
+     * @param visibility The player's previous visibility, or null to look it up - refreshed if it is from another
+     *                   catalogue version
+     * @param builder Builds the view from the player's current visibility on a worker
+     * @param opener A consumer run on the server thread with the prepared view
+     * @param attempt The current attempt, starting from one
+     */
+    private void prepare(Player player, Visibility visibility, Function<Visibility, PreparedView> builder,
+                         Consumer<PreparedView> opener, int attempt) {
+        Visibility current = visibility == null || visibility.catalogueVersion() != questProvider.getCatalogueVersion()
+                ? visibilityCache.getVisibility(player)
+                : visibility;
+        CompletableFuture.supplyAsync(() -> builder.apply(current), workers)
+                .thenAcceptAsync(view -> {
+                    if (!player.isOnline())
+                        return;
+                    if (view.visibility().catalogueVersion() == questProvider.getCatalogueVersion())
+                        opener.accept(view);
+                    else if (attempt < MAX_ATTEMPTS)
+                        prepare(player, null, builder, opener, attempt + 1);
+                    else
+                        opener.accept(builder.apply(visibilityCache.getVisibility(player)));
+                }, serverThread)
+                .exceptionally(this::logFailure);
+    }
+
+    /**
+     * Utility function to prepare a page of search results, searching again if the catalogue changes before it reaches
+     * the server thread.
+     * @param player The player searching
+     * @param query The search query
+     * @param page The page index
+     * @param opener A consumer run on the server thread with the prepared view
+     * @param attempt The current attempt, starting from one
+     * @return Whether any quest matched
+     */
+    private boolean prepareSearch(Player player, String query, int page, Consumer<PreparedView> opener, int attempt) {
+        Visibility results = search(player, query);
+        if (results.ordinals().length == 0)
+            return false;
+
+        int index = Math.max(0, Math.min(page, QuestBookTemplates.getPageCount(results) - 1));
+        CompletableFuture.supplyAsync(() -> new PreparedView(results, index, questBookTemplates.buildPage(results, index), query, null), workers)
+                .thenAcceptAsync(view -> {
+                    if (!player.isOnline())
+                        return;
+                    if (view.visibility().catalogueVersion() == questProvider.getCatalogueVersion())
+                        opener.accept(view);
+                    else if (attempt < MAX_ATTEMPTS)
+                        prepareSearch(player, query, page, opener, attempt + 1);
+                    else {
+                        Visibility current = search(player, query);
+                        int currentIndex = Math.max(0, Math.min(page, QuestBookTemplates.getPageCount(current) - 1));
+                        opener.accept(new PreparedView(current, currentIndex, questBookTemplates.buildPage(current, currentIndex), query, null));
+                    }
+                }, serverThread)
+                .exceptionally(this::logFailure);
+        return true;
+    }
+
+    /**
+     * Utility function to search for the quests a player may view, as a visibility over the ranked results.
+     * @param player The player searching
+     * @param query The search query
+     * @return The results - their catalogue is the ranked result list, every entry of which is visible
+     */
+    private Visibility search(Player player, String query) {
+        long version = questProvider.getCatalogueVersion();
+        boolean viewAll = player.hasPermission(PERM_QUESTBOOK_VIEW_ALL);
+        List<Quest> matches = searchIndex.search(query,
+                quest -> viewAll || player.hasPermission(quest.getViewPermission()),
+                MAX_SEARCH_RESULTS);
+
+        BitSet quests = new BitSet(matches.size());
+        quests.set(0, matches.size());
+        return new Visibility(matches, quests, quests.stream().toArray(), version, System.nanoTime());
+    }
+
+    /**
+     * Utility function to build a view.
+     * @param visibility The player's current visibility - narrowing it down again by the same filter leaves it unchanged
+     * @param page The page index
+     * @param filter The quests to show and their order
+     * @return The prepared view
+     */
+    private PreparedView buildView(Visibility visibility, int page, Filter filter) {
+        Visibility filtered = catalogueIndex.filter(visibility, filter);
+        int index = Math.max(0, Math.min(page, QuestBookTemplates.getPageCount(filtered) - 1));
+        return new PreparedView(filtered, index,
+                questBookTemplates.getPage(filtered, filter, catalogueIndex.hasCategories(), index), null, filter);
+    }
+
+    /**
+     * Utility function to build the category page for a player.
+     * @param visibility The player's current visibility
+     * @param page The page index
+     * @return The prepared view
+     */
+    private PreparedView buildCategories(Visibility visibility, int page) {
+        SortedMap<String, Integer> counts = catalogueIndex.getCategoryCounts(visibility);
+        int index = Math.max(0, Math.min(page, QuestBookTemplates.getCategoryPageCount(counts) - 1));
+        Page template = questBookTemplates.buildCategoryPage(counts, visibility.ordinals().length, index);
+        return new PreparedView(visibility, index, template, null, null);
+    }
+
+    /**
+     * Utility function to log a failed preparation - failures after a disable are expected and ignored.
+     * @param ex The failure
+     * @return Nothing - used as an exceptionally handler
+     */
+    private Void logFailure(Throwable ex) {
+        if (plugin.isEnabled())
+            plugin.getComponentLogger().error("Failed to prepare a questbook view!", ex);
+        return null;
+    }
+
+    /**
+     * A prepared questbook page.
+     * @param visibility The quests visible to the viewer, for the current catalogue version
+     * @param page The clamped page index
+     * @param template The page template to copy into the inventory
+     * @param query The search query the view shows the results of, or null if it is not a search
+     * @param filter The filter the view shows, or null for search results and the category page
+     */
+    public record PreparedView(Visibility visibility, int page, Page template, String query, Filter filter) {
+
+        /**
+         * Function to check whether the view is the category page.
+         * @return Whether the view is the category page
+         */
+        public boolean isCategoryPage() {
+            return query == null && filter == null;
+        }
+
+    }
+
+    /**
+     * Compiled pages with their placeholders resolved, waiting to be assembled into a book.
+     * @param compiled The compiled pages
+     * @param values The resolved value of each placeholder (null until resolved)
+     * @param renderNanos The time spent rendering so far, for metrics
+     */
+    private record PreparedPages(List<PageTemplate> compiled, Map<String, String> values, long renderNanos) {
+    }
+
+}
@@ -0,0 +1,119 @@
+package me.plobnob.quest.gui;
+
+import lombok.Getter;
+import me.plobnob.quest.gui.QuestBookPreparer.PreparedView;
+import me.plobnob.quest.provider.Quest;
+import me.plobnob.quest.provider.QuestCatalogueIndex.Filter;
+import me.plobnob.quest.validation.QuestVisibilityCache.Visibility;
+import org.bukkit.Bukkit;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryHolder;
+import org.jetbrains.annotations.NotNull;
+
+import static me.plobnob.quest.gui.QuestBookTemplates.INVENTORY_SIZE;
+import static me.plobnob.quest.util.PluginConstants.TITLE_QUESTBOOK;
+
+/**
+ * An open questbook GUI - the holder of its inventory, so questbook inventories are identified by their holder.
+ * Carries the quests visible to the viewer (or the results of their search), the filter and page cursor (of the category
+ * page while it is shown), and the quest or category shown in each raw slot.
+ * A session is torn down when its inventory is closed, after which prepared pages are no longer applied to it.
+ */
+public class QuestBookSession implements InventoryHolder {
+
+    // Member variables
+    private final Inventory inventory;
+    @Getter
+    private Visibility visibility;
+    @Getter
+    private int page;
+    @Getter
+    private int pageCount;
+    @Getter
+    private String query;
+    @Getter
+    private Filter filter;
+    private Quest[] slots;
+    private String[] categories;
+    private boolean back;
+    @Getter
+    private boolean closed;
+
+    /**
+     * Default constructor - creates the session's inventory showing a prepared page.
+     * @param prepared The first page to show
+     */
+    public QuestBookSession(PreparedView prepared) {
+        this.inventory = Bukkit.createInventory(this, INVENTORY_SIZE, TITLE_QUESTBOOK);
+        apply(prepared);
+    }
+
+    @Override
+    public @NotNull Inventory getInventory() {
+        return inventory;
+    }
+
+    /**
+     * Function to copy a prepared page into the session's inventory, unless the session was torn down.
+     * @param prepared The prepared page
+     */
+    public void apply(PreparedView prepared) {
+        if (closed)
+            return;
+        visibility = prepared.visibility();
+        page = prepared.page();
+        pageCount = prepared.template().pageCount();
+        query = prepared.query();
+        filter = prepared.filter();
+        slots = prepared.template().slots();
+        categories = prepared.template().categories();
+        back = prepared.template().back();
+        inventory.setContents(prepared.template().contents());
+    }
+
+    /**
+     * Function to get the quest shown in a raw slot.
+     * @param rawSlot The raw slot index
+     * @return The quest, or null if the slot does not show a quest (or is outside the questbook)
+     */
+    public Quest getQuest(int rawSlot) {
+        if (closed || rawSlot < 0 || rawSlot >= slots.length)
+            return null;
+        return slots[rawSlot];
+    }
+
+    /**
+     * Function to get the category shown in a raw slot of the category page.
+     * @param rawSlot The raw slot index
+     * @return The category, {@link QuestBookTemplates#ALL_CATEGORIES} for every quest, or null if the slot does not
+     *         show a category
+     */
+    public String getCategory(int rawSlot) {
+        if (closed || rawSlot < 0 || rawSlot >= categories.length)
+            return null;
+        return categories[rawSlot];
+    }
+
+    /**
+     * Function to check whether the page shows a button back to the category page.
+     * @return Whether the page has a back button
+     */
+    public boolean hasBack() {
+        return !closed && back;
+    }
+
+    /**
+     * Function to tear the session down, releasing its references to the catalogue.
+     * @return Whether the session was open
+     */
+    public boolean close() {
+        if (closed)
+            return false;
+        closed = true;
+        visibility = null;
+        slots = new Quest[0];
+        categories = new String[0];
+        return true;
+    }
+
+}
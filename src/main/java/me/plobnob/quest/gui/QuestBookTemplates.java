@@ -0,0 +1,347 @@
+package me.plobnob.quest.gui;
+
+import me.plobnob.quest.provider.CatalogueListener;
+import me.plobnob.quest.provider.Quest;
+import me.plobnob.quest.provider.QuestCatalogueIndex.Filter;
+import me.plobnob.quest.validation.QuestVisibilityCache.Visibility;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.minimessage.MiniMessage;
+import net.kyori.adventure.text.minimessage.tag.resolver.Placeholder;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+import static me.plobnob.quest.util.PluginConstants.*;
+
+/**
+ * A cache of prebuilt questbook GUI pages, shared between every player with the same visible quests and filter.
+ * Each page holds the full inventory contents (borders, header, page controls and quests) and its slot to quest
+ * table, so opening or paging the GUI only copies the contents into the inventory.
+ * Category pages depend on per-player counts, so they are built on demand rather than cached.
+ * Any catalogue change or quest edit discards every template.
+ * Pages may be built off the server thread - a page built while the templates were discarded is returned but not kept.
+ */
+public class QuestBookTemplates implements CatalogueListener {
+
+    // Layout constants - quests fill the four rows between the top and bottom border rows
+    public static final int INVENTORY_SIZE = 54;
+    public static final int PAGE_SIZE = 36;
+    public static final int PREVIOUS_SLOT = 45;
+    public static final int BACK_SLOT = 47;
+    public static final int SORT_SLOT = 49;
+    public static final int NEXT_SLOT = 53;
+    private static final int CONTENT_START = 9;
+    private static final int HEADER_SLOT = 4;
+
+    // Category page key for every quest - never a valid category name
+    public static final String ALL_CATEGORIES = "*";
+
+    // Utility member variables (itemstacks)
+    private final ItemStack borderItem = buildBorderItem();
+    private final ItemStack questBookItem = buildQuestBookItem();
+    private final ItemStack previousPageItem = buildPageItem(TITLE_PREVIOUS_PAGE);
+    private final ItemStack nextPageItem = buildPageItem(TITLE_NEXT_PAGE);
+    private final ItemStack backItem = buildPageItem(TITLE_CATEGORIES);
+
+    // Member variables - templates by visibility class and filter, bounded to the most recently used classes
+    private final Map<TemplateKey, Page[]> templates;
+    private long templateVersion = -1;
+    private long generation;
+
+    /**
+     * Default constructor.
+     * @param maxClasses The maximum number of visibility classes to keep templates for
+     */
+    public QuestBookTemplates(int maxClasses) {
+        this.templates = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<TemplateKey, Page[]> eldest) {
+                return size() > maxClasses;
+            }
+        };
+    }
+
+    /**
+     * Function to get the prebuilt page for a visibility class showing every quest, building it if needed.
+     * @param visibility The quests visible to the viewer
+     * @param page The page index - clamped to the available pages
+     * @return The page template
+     */
+    public Page getPage(Visibility visibility, int page) {
+        return getPage(visibility, Filter.ALL, false, page);
+    }
+
+    /**
+     * Function to get the prebuilt page for a filtered visibility class, building it if needed.
+     * @param visibility The quests visible to the viewer, already narrowed down to the filter
+     * @param filter The filter the visibility was narrowed down by
+     * @param back Whether to show a control back to the category page
+     * @param page The page index - clamped to the available pages
+     * @return The page template
+     */
+    public Page getPage(Visibility visibility, Filter filter, boolean back, int page) {
+        TemplateKey key = new TemplateKey(visibility.quests(), filter, back);
+        int pageCount = getPageCount(visibility);
+        int index = Math.max(0, Math.min(page, pageCount - 1));
+
+        long builtGeneration;
+        synchronized (this) {
+            if (visibility.catalogueVersion() != templateVersion) {
+                invalidate();
+                templateVersion = visibility.catalogueVersion();
+            }
+            Page[] pages = templates.get(key);
+            if (pages != null && pages[index] != null)
+                return pages[index];
+            builtGeneration = generation;
+        }
+
+        // Built outside the lock, as rendering display stacks is the expensive part
+        Page built = buildPage(visibility, index, pageCount, filter, back);
+        synchronized (this) {
+            if (builtGeneration == generation)
+                templates.computeIfAbsent(key, ignored -> new Page[pageCount])[index] = built;
+        }
+        return built;
+    }
+
+    /**
+     * Function to build a page without caching it - for one-off views, such as search results, whose quest order is not
+     * determined by their visibility class.
+     * @param visibility The quests to show
+     * @param page The page index - clamped to the available pages
+     * @return The page template
+     */
+    public Page buildPage(Visibility visibility, int page) {
+        int pageCount = getPageCount(visibility);
+        return buildPage(visibility, Math.max(0, Math.min(page, pageCount - 1)), pageCount, null, false);
+    }
+
+    /**
+     * Function to build a page of the category page - a control for every quest, followed by one for each category.
+     * @param counts The number of quests the viewer may see in each category
+     * @param total The number of quests the viewer may see
+     * @param page The page index - clamped to the available pages
+     * @return The page template
+     */
+    public Page buildCategoryPage(SortedMap<String, Integer> counts, int total, int page) {
+        ItemStack[] contents = new ItemStack[INVENTORY_SIZE];
+        String[] categories = new String[INVENTORY_SIZE];
+        int pageCount = getCategoryPageCount(counts);
+        int index = Math.max(0, Math.min(page, pageCount - 1));
+
+        buildBorders(contents);
+        if (index > 0)
+            contents[PREVIOUS_SLOT] = previousPageItem;
+        if (index < pageCount - 1)
+            contents[NEXT_SLOT] = nextPageItem;
+
+        // The control for every quest takes the first entry of the first page
+        int first = index * PAGE_SIZE;
+        int entry = 0;
+        int slot = CONTENT_START;
+        if (index == 0) {
+            contents[slot] = buildCategoryItem(Material.CHEST, "<yellow>All quests</yellow>", total);
+            categories[slot++] = ALL_CATEGORIES;
+        }
+        for (Map.Entry<String, Integer> category : counts.entrySet()) {
+            if (slot >= CONTENT_START + PAGE_SIZE)
+                break;
+            if (++entry < first)
+                continue;
+            contents[slot] = buildCategoryItem(Material.BOOKSHELF, "<yellow>" + category.getKey() + "</yellow>", category.getValue());
+            categories[slot++] = category.getKey();
+        }
+
+        return new Page(contents, new Quest[INVENTORY_SIZE], categories, false, pageCount);
+    }
+
+    /**
+     * Function to get the number of pages of the category page.
+     * @param counts The number of quests the viewer may see in each category
+     * @return The page count - at least one
+     */
+    public static int getCategoryPageCount(SortedMap<String, Integer> counts) {
+        return (counts.size() + PAGE_SIZE) / PAGE_SIZE;
+    }
+
+    /**
+     * Function to get the number of pages for a visibility class.
+     * @param visibility The quests visible to the viewer
+     * @return The page count - at least one
+     */
+    public static int getPageCount(Visibility visibility) {
+        return Math.max(1, (visibility.ordinals().length + PAGE_SIZE - 1) / PAGE_SIZE);
+    }
+
+    /**
+     * Function to discard every template.
+     */
+    public synchronized void invalidate() {
+        templates.clear();
+        generation++;
+    }
+
+    @Override
+    public void questRegistered(Quest quest) {
+        invalidate();
+    }
+
+    @Override
+    public void questUnregistered(Quest quest) {
+        invalidate();
+    }
+
+    @Override
+    public void questRenamed(Quest quest, String oldName) {
+        invalidate();
+    }
+
+    @Override
+    public void questChanged(Quest quest) {
+        invalidate();
+    }
+
+    /**
+     * Utility function to build a page template.
+     * @param visibility The quests visible to the viewer
+     * @param page The page index
+     * @param pageCount The number of pages
+     * @param filter The filter the visibility was narrowed down by, or null if the quest order cannot be changed
+     * @param back Whether to show a control back to the category page
+     * @return The built page
+     */
+    private Page buildPage(Visibility visibility, int page, int pageCount, Filter filter, boolean back) {
+        ItemStack[] contents = new ItemStack[INVENTORY_SIZE];
+        Quest[] slots = new Quest[INVENTORY_SIZE];
+
+        buildBorders(contents);
+        if (page > 0)
+            contents[PREVIOUS_SLOT] = previousPageItem;
+        if (page < pageCount - 1)
+            contents[NEXT_SLOT] = nextPageItem;
+        if (back)
+            contents[BACK_SLOT] = backItem;
+        if (filter != null)
+            contents[SORT_SLOT] = buildSortItem(filter);
+
+        int[] ordinals = visibility.ordinals();
+        int first = page * PAGE_SIZE;
+        for (int i = 0; i < PAGE_SIZE && first + i < ordinals.length; i++) {
+            Quest quest = visibility.catalogue().get(ordinals[first + i]);
+            slots[CONTENT_START + i] = quest;
+            contents[CONTENT_START + i] = quest.getDisplayStack();
+        }
+
+        return new Page(contents, slots, new String[INVENTORY_SIZE], back, pageCount);
+    }
+
+    /**
+     * Utility function to fill in the border rows and header of a page.
+     * @param contents The page contents
+     */
+    private void buildBorders(ItemStack[] contents) {
+        for (int i = 0; i <= 8; i++)
+            contents[i] = borderItem;
+        for (int i = 45; i <= 53; i++)
+            contents[i] = borderItem;
+        contents[HEADER_SLOT] = questBookItem;
+    }
+
+    /**
+     * Utility function to build the sort control, showing the current order and the next.
+     * @param filter The filter being shown
+     * @return A sort control itemstack
+     */
+    private ItemStack buildSortItem(Filter filter) {
+        ItemStack stack = new ItemStack(Material.HOPPER, 1);
+        ItemMeta meta = stack.getItemMeta();
+        meta.displayName(MiniMessage.miniMessage().deserialize("<yellow>Sorted by: <gray><sort></gray></yellow>",
+                Placeholder.unparsed("sort", filter.sort().getDisplayName())));
+        meta.lore(List.of(MiniMessage.miniMessage().deserialize("<gray>Click to sort by <sort></gray>",
+                Placeholder.unparsed("sort", filter.sort().next().getDisplayName().toLowerCase()))));
+        stack.setItemMeta(meta);
+        return stack;
+    }
+
+    /**
+     * Utility function to build a category control for the category page.
+     * @param material The control material
+     * @param title The control title
+     * @param count The number of quests in the category
+     * @return A category control itemstack
+     */
+    private ItemStack buildCategoryItem(Material material, String title, int count) {
+        ItemStack stack = new ItemStack(material, 1);
+        ItemMeta meta = stack.getItemMeta();
+        meta.displayName(MiniMessage.miniMessage().deserialize(title));
+        meta.lore(List.of(MiniMessage.miniMessage().deserialize("<gray>" + count + (count == 1 ? " quest" : " quests") + "</gray>")));
+        stack.setItemMeta(meta);
+        return stack;
+    }
+
+    /**
+     * Utility function to build border items for the questbook UI.
+     * @return A border itemstack
+     */
+    private ItemStack buildBorderItem() {
+        ItemStack stack = new ItemStack(Material.BLACK_STAINED_GLASS_PANE, 1);
+        ItemMeta meta = stack.getItemMeta();
+        meta.displayName(TITLE_EMPTY);
+        stack.setItemMeta(meta);
+        return stack;
+    }
+
+    /**
+     * Utility function to build questbook title item for the questbook UI.
+     * @return A questbook title itemstack
+     */
+    private ItemStack buildQuestBookItem() {
+        ItemStack stack = new ItemStack(Material.BOOK, 1);
+        ItemMeta meta = stack.getItemMeta();
+        meta.displayName(TITLE_QUESTBOOK);
+        meta.setEnchantmentGlintOverride(true);
+        stack.setItemMeta(meta);
+        return stack;
+    }
+
+    /**
+     * Utility function to build page control items for the questbook UI.
+     * @param title The control title
+     * @return A page control itemstack
+     */
+    private ItemStack buildPageItem(Component title) {
+        ItemStack stack = new ItemStack(Material.ARROW, 1);
+        ItemMeta meta = stack.getItemMeta();
+        meta.displayName(title);
+        stack.setItemMeta(meta);
+        return stack;
+    }
+
+    /**
+     * A prebuilt questbook page - every array is shared and must not be modified.
+     * @param contents The inventory contents
+     * @param slots The quest shown in each raw slot (null for border and empty slots)
+     * @param categories The category shown in each raw slot of a category page ({@link #ALL_CATEGORIES} for every quest)
+     * @param back Whether the page shows a control back to the category page
+     * @param pageCount The number of pages in the view the page belongs to
+     */
+    public record Page(ItemStack[] contents, Quest[] slots, String[] categories, boolean back, int pageCount) {
+    }
+
+    /**
+     * The key of a cached set of pages.
+     * @param quests The visible quests, narrowed down to the filter
+     * @param filter The filter, which also determines the quest order
+     * @param back Whether the pages show a control back to the category page
+     */
+    private record TemplateKey(BitSet quests, Filter filter, boolean back) {
+    }
+
+}
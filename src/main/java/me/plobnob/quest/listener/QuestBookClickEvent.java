@@ -1,40 +1,46 @@
 package me.plobnob.quest.listener;
 
 import lombok.RequiredArgsConstructor;
+import me.plobnob.quest.gui.QuestBookPreparer;
+import me.plobnob.quest.gui.QuestBookPreparer.PreparedView;
+import me.plobnob.quest.gui.QuestBookSession;
+import me.plobnob.quest.metrics.QuestMetrics;
 import me.plobnob.quest.provider.Quest;
-import me.plobnob.quest.provider.QuestProvider;
-import net.kyori.adventure.inventory.Book;
+import me.plobnob.quest.provider.QuestCatalogueIndex.Filter;
+import me.plobnob.quest.provider.QuestSort;
 import org.bukkit.Bukkit;
-import org.bukkit.Material;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.inventory.InventoryClickEvent;
-import org.bukkit.inventory.Inventory;
+import org.bukkit.event.inventory.InventoryCloseEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.inventory.InventoryView;
-import org.bukkit.inventory.ItemStack;
-import org.bukkit.inventory.meta.ItemMeta;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.UUID;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import static me.plobnob.quest.util.PluginConstants.*;
+import static me.plobnob.quest.gui.QuestBookTemplates.ALL_CATEGORIES;
+import static me.plobnob.quest.gui.QuestBookTemplates.BACK_SLOT;
+import static me.plobnob.quest.gui.QuestBookTemplates.NEXT_SLOT;
+import static me.plobnob.quest.gui.QuestBookTemplates.PREVIOUS_SLOT;
+import static me.plobnob.quest.gui.QuestBookTemplates.SORT_SLOT;
 
 /**
  * A listener class to observe inventory click event and handle GUI events for the questbook system.
+ * Questbook inventories are identified by their {@link QuestBookSession} holder, so no per-player state is kept here.
+ * Pages and books are prepared off the server thread - clicks only copy prepared contents in once they are ready.
  */
 @RequiredArgsConstructor
 public class QuestBookClickEvent implements Listener {
 
-    // Utility member variables (itemstacks and active inventory tracking)
-    private final ItemStack borderItem = buildBorderItem();
-    private final ItemStack questBookItem = buildQuestBookItem();
-    private final Map<UUID, InventoryView> activeInventories = new HashMap<>();
+    // Number of open questbooks, for metrics
+    private final AtomicInteger openQuestBooks = new AtomicInteger();
 
-    // Quest provider (set by lombok)
-    private final QuestProvider questProvider;
+    // Questbook view and book preparation pipeline and plugin metrics (set by lombok)
+    private final QuestBookPreparer questBookPreparer;
+    private final QuestMetrics metrics;
 
     /**
      * A listener to handle players clicking inside the questbook GUI.
@@ -42,102 +48,165 @@ public class QuestBookClickEvent implements Listener {
      */
     @EventHandler(priority = EventPriority.HIGHEST, ignoreCancelled = false)
     public void onQuestInventoryClick(InventoryClickEvent event) {
-        if (!(event.getWhoClicked() instanceof Player player))
+        if (!(event.getView().getTopInventory().getHolder(false) instanceof QuestBookSession session))
             return;
 
-        UUID uuid = player.getUniqueId();
+        event.setCancelled(true);
 
-        if (!activeInventories.containsKey(uuid))
+        if (!(event.getWhoClicked() instanceof Player player))
             return;
 
-        InventoryView storedView = activeInventories.get(uuid);
-        if (player.getOpenInventory() != storedView) {
-            activeInventories.remove(uuid);
+        long start = metrics.start();
+        handleClick(player, session, event.getRawSlot());
+        metrics.record(QuestMetrics.Operation.CLICK, start);
+    }
+
+    /**
+     * Utility function to handle a click inside the questbook GUI.
+     * @param player The player who clicked
+     * @param session The questbook session
+     * @param slot The raw slot clicked
+     */
+    private void handleClick(Player player, QuestBookSession session, int slot) {
+        if (session.getQuery() == null && session.getFilter() == null) {
+            if (slot == PREVIOUS_SLOT && session.getPage() > 0) {
+                questBookPreparer.prepareHome(player, session.getPage() - 1, session::apply);
+                return;
+            }
+            if (slot == NEXT_SLOT && session.getPage() < session.getPageCount() - 1) {
+                questBookPreparer.prepareHome(player, session.getPage() + 1, session::apply);
+                return;
+            }
+            String category = session.getCategory(slot);
+            if (category != null) {
+                Filter filter = category.equals(ALL_CATEGORIES) ? Filter.ALL : new Filter(category, Set.of(), QuestSort.CATALOGUE);
+                questBookPreparer.prepareView(player, null, 0, filter, session::apply);
+            }
             return;
         }
-
-        event.setCancelled(true);
-
-        ItemStack clickedStack = event.getCurrentItem();
-        if (clickedStack == null)
+        if (slot == BACK_SLOT && session.hasBack()) {
+            questBookPreparer.prepareHome(player, 0, session::apply);
             return;
+        }
+        if (slot == SORT_SLOT && session.getFilter() != null) {
+            Filter filter = session.getFilter();
+            questBookPreparer.prepareView(player, session.getVisibility(), 0, filter.withSort(filter.sort().next()), session::apply);
+            return;
+        }
+        if (slot == PREVIOUS_SLOT && session.getPage() > 0) {
+            turnPage(player, session, session.getPage() - 1);
+            return;
+        }
+        if (slot == NEXT_SLOT && session.getPage() < session.getPageCount() - 1) {
+            turnPage(player, session, session.getPage() + 1);
+            return;
+        }
 
-        Quest clickedQuest = questProvider.getQuests()
-                .stream()
-                .filter(quest -> clickedStack.equals(quest.getDisplayStack()))
-                .findFirst()
-                .orElse(null);
-
+        Quest clickedQuest = session.getQuest(slot);
         if (clickedQuest == null)
             return;
 
         player.closeInventory();
-        activeInventories.remove(uuid);
+        questBookPreparer.prepareBook(player, clickedQuest, player::openBook);
+    }
 
-        Book book = clickedQuest.writeBookFor(player);
-        player.openBook(book);
+    /**
+     * A listener to tear down questbook sessions when their inventory is closed.
+     * @param event The event parameters
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuestInventoryClose(InventoryCloseEvent event) {
+        if (event.getInventory().getHolder(false) instanceof QuestBookSession session && session.close())
+            openQuestBooks.decrementAndGet();
     }
 
     /**
-     * Utility function to open the questbook inventory for a given player.
-     * Binds the inventory instance into a map to handle inventory click events.
+     * A listener to tear down questbook sessions of players leaving the server.
+     * @param event The event parameters
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        if (event.getPlayer().getOpenInventory().getTopInventory().getHolder(false) instanceof QuestBookSession session && session.close())
+            openQuestBooks.decrementAndGet();
+    }
+
+    /**
+     * Utility function to open the questbook inventory for a given player once its first page is prepared.
      * @param player The player to open the inventory for
      */
     public void openInventory(Player player) {
-        Inventory inventory = Bukkit.createInventory(player, 54, TITLE_QUESTBOOK);
-
-        for (int i = 0; i <= 8; i++)
-            inventory.setItem(i, borderItem);
-        for (int i = 45; i <= 53; i++)
-            inventory.setItem(i, borderItem);
-        inventory.setItem(4, questBookItem);
-
-        int index = 9;
-        for (Quest quest : questProvider.getQuests()) {
-            if (!player.hasPermission(PERM_QUESTBOOK_VIEW_ALL) && !player.hasPermission(String.format(PERM_QUESTBOOK_VIEW_QUEST, quest.getName())))
-                continue;
-            if (index > 36)
-                break;
-            inventory.setItem(index++, quest.getDisplayStack());
-        }
+        long start = metrics.start();
+        questBookPreparer.prepareHome(player, 0, prepared -> openSession(player, prepared, start));
+    }
 
-        InventoryView view = player.openInventory(inventory);
-        activeInventories.put(player.getUniqueId(), view);
+    /**
+     * Function to open the questbook inventory for a given player showing a slice of the catalogue.
+     * @param player The player to open the inventory for
+     * @param filter The quests to show and their order
+     */
+    public void openFiltered(Player player, Filter filter) {
+        long start = metrics.start();
+        questBookPreparer.prepareView(player, null, 0, filter, prepared -> openSession(player, prepared, start));
     }
 
     /**
-     * Utility function to clear all active inventory bindings and close inventories (in the event of a reload).
+     * Function to open the questbook inventory for a given player showing the results of a search.
+     * @param player The player searching
+     * @param query The search query
+     * @return Whether any quest matched - if not, no inventory is opened
      */
-    public void clearBindings() {
-        for (Map.Entry<UUID, InventoryView> entry : activeInventories.entrySet()) {
-            entry.getValue().close();
+    public boolean openSearch(Player player, String query) {
+        long start = metrics.start();
+        return questBookPreparer.prepareSearch(player, query, 0, prepared -> openSession(player, prepared, start));
+    }
+
+    /**
+     * Utility function to open a new questbook session showing its first prepared page.
+     * @param player The player to open the inventory for
+     * @param prepared The first page
+     * @param start The time the open was requested, for metrics
+     */
+    private void openSession(Player player, PreparedView prepared, long start) {
+        QuestBookSession session = new QuestBookSession(prepared);
+        InventoryView view = player.openInventory(session.getInventory());
+        if (view == null) {
+            session.close();
+            return;
         }
-        activeInventories.clear();
+        openQuestBooks.incrementAndGet();
+        metrics.record(QuestMetrics.Operation.GUI_OPEN, start);
     }
 
     /**
-     * Utility function to build border items for the questbook UI.
-     * @return A border itemstack
+     * Function to get the number of open questbooks.
+     * @return The open questbook count
      */
-    private ItemStack buildBorderItem() {
-        ItemStack stack = new ItemStack(Material.BLACK_STAINED_GLASS_PANE, 1);
-        ItemMeta meta = stack.getItemMeta();
-        meta.displayName(TITLE_EMPTY);
-        stack.setItemMeta(meta);
-        return stack;
+    public int getOpenQuestBooks() {
+        return openQuestBooks.get();
     }
 
     /**
-     * Utility function to build questbook title item for the questbook UI.
-     * @return A questbook title itemstack
+     * Utility function to move an open questbook to another page once the page is prepared.
+     * The page is dropped if the session was torn down in the meantime.
+     * @param player The player viewing the questbook
+     * @param session The questbook session
+     * @param page The page index to move to
      */
-    private ItemStack buildQuestBookItem() {
-        ItemStack stack = new ItemStack(Material.BOOK, 1);
-        ItemMeta meta = stack.getItemMeta();
-        meta.displayName(TITLE_QUESTBOOK);
-        meta.setEnchantmentGlintOverride(true);
-        stack.setItemMeta(meta);
-        return stack;
+    private void turnPage(Player player, QuestBookSession session, int page) {
+        if (session.getQuery() != null)
+            questBookPreparer.prepareSearch(player, session.getQuery(), page, session::apply);
+        else
+            questBookPreparer.prepareView(player, session.getVisibility(), page, session.getFilter(), session::apply);
+    }
+
+    /**
+     * Utility function to close every open questbook (in the event of a reload).
+     */
+    public void clearBindings() {
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            if (player.getOpenInventory().getTopInventory().getHolder(false) instanceof QuestBookSession)
+                player.closeInventory();
+        }
     }
 
 }
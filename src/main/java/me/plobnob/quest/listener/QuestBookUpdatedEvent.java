@@ -1,34 +1,110 @@
 package me.plobnob.quest.listener;
 
-import lombok.Data;
-import lombok.Getter;
-import lombok.RequiredArgsConstructor;
 import me.plobnob.quest.provider.Quest;
 import me.plobnob.quest.provider.QuestProvider;
 import me.plobnob.quest.util.TextFormatter;
 import net.kyori.adventure.text.TextComponent;
+import org.bukkit.Bukkit;
+import org.bukkit.NamespacedKey;
+import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerDropItemEvent;
 import org.bukkit.event.player.PlayerEditBookEvent;
-import org.bukkit.inventory.meta.BookMeta;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
+import org.bukkit.persistence.PersistentDataType;
+import org.bukkit.plugin.Plugin;
 
-import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * A listener class to handle player sign book events to register changed questbook content.
+ * Each editable book is stamped with a session token in its persistent data, so finding the quest a book edits
+ * costs the same however long the book is. Sessions expire, are limited per player and end when the book is
+ * signed or dropped, or the player leaves.
  */
-@RequiredArgsConstructor
 public class QuestBookUpdatedEvent implements Listener, TextFormatter {
 
-    // In-memory map for binding book metadata to a quest it should update
-    @Getter
-    private final Map<BookMeta, Quest> distributedBooks = new HashMap<>();
-
-    // Quest provider (set by lombok)
+    // Member variables - edit sessions by token, and the tokens held by each player
+    private final Plugin plugin;
     private final QuestProvider questProvider;
+    private final NamespacedKey sessionKey;
+    private final long sessionTimeout;
+    private final int maxSessions;
+    private final Map<String, EditSession> sessions = new ConcurrentHashMap<>();
+    private final Map<UUID, Set<String>> playerSessions = new HashMap<>();
+
+    /**
+     * Default constructor.
+     * @param plugin The plugin instance
+     * @param questProvider The quest provider
+     */
+    public QuestBookUpdatedEvent(Plugin plugin, QuestProvider questProvider) {
+        this.plugin = plugin;
+        this.questProvider = questProvider;
+        this.sessionKey = new NamespacedKey(plugin, "edit_session");
+        this.sessionTimeout = TimeUnit.MINUTES.toNanos(Math.max(1, plugin.getConfig().getLong("editing.session-timeout", 30)));
+        this.maxSessions = Math.max(1, plugin.getConfig().getInt("editing.max-sessions", 3));
+    }
+
+    /**
+     * Function to start an edit session, generating an editable book stamped with the session token.
+     * @param player The player editing the quest
+     * @param quest The quest to edit
+     * @return The editable book, or null if the player already has the maximum number of sessions open
+     */
+    public ItemStack openSession(Player player, Quest quest) {
+        purgeExpired();
+
+        if (playerSessions.getOrDefault(player.getUniqueId(), Set.of()).size() >= maxSessions)
+            return null;
+
+        ItemStack book = quest.writableBook();
+        if (book == null)
+            return null;
+
+        String token = UUID.randomUUID().toString();
+        book.editMeta(meta -> meta.getPersistentDataContainer().set(sessionKey, PersistentDataType.STRING, token));
+        sessions.put(token, new EditSession(player.getUniqueId(), quest, System.nanoTime() + sessionTimeout));
+        playerSessions.computeIfAbsent(player.getUniqueId(), uuid -> new HashSet<>()).add(token);
+        return book;
+    }
+
+    /**
+     * Function to end the edit session of a book which was never handed out.
+     * @param book The editable book
+     */
+    public void closeSession(ItemStack book) {
+        String token = getToken(book);
+        if (token != null)
+            endSession(token);
+    }
+
+    /**
+     * Function to get the number of open edit sessions - safe to call from any thread.
+     * @return The edit session count
+     */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * Function to end every edit session (in the event of a reload) - their books are left inert.
+     */
+    public void clearSessions() {
+        sessions.clear();
+        playerSessions.clear();
+    }
 
     /**
      * A listener to handle players finishing editing or signing books.
@@ -36,36 +112,149 @@ public class QuestBookUpdatedEvent implements Listener, TextFormatter {
      */
     @EventHandler(priority = EventPriority.HIGHEST, ignoreCancelled = true)
     public void onQuestBookUpdated(PlayerEditBookEvent event) {
-        BookMeta oldMeta = event.getPreviousBookMeta();
-        if (!distributedBooks.containsKey(oldMeta))
+        String token = event.getPreviousBookMeta().getPersistentDataContainer().get(sessionKey, PersistentDataType.STRING);
+        if (token == null)
+            return;
+
+        Player player = event.getPlayer();
+        EditSession session = sessions.get(token);
+        if (session != null && !session.player().equals(player.getUniqueId())) {
+            player.sendMessage(format("<red>Error: This quest book belongs to another player's edit session!</red>"));
+            event.setCancelled(true);
+            return;
+        }
+        if (session == null || System.nanoTime() - session.expiresAt() > 0) {
+            endSession(token);
+            player.sendMessage(format("<red>Error: This quest edit session has expired - run the edit command again for a new book!</red>"));
+            event.setCancelled(true);
+            removeBooks(player, token);
             return;
+        }
 
-        Quest quest = distributedBooks.get(oldMeta);
-        BookMeta newMeta = event.getNewBookMeta();
+        Quest quest = session.quest();
+        if (questProvider.getQuest(quest.getName()) != quest) {
+            endSession(token);
+            player.sendMessage(format("<red>Error: The quest being edited no longer exists!</red>"));
+            event.setCancelled(true);
+            removeBooks(player, token);
+            return;
+        }
 
-        quest.setPages(newMeta.pages()
+        quest.setPages(event.getNewBookMeta().pages()
                 .stream()
                 .filter(component -> component instanceof TextComponent)
                 .map(component -> ((TextComponent)component).content())
                 .toList());
 
-        event.getPlayer().sendMessage(format("<yellow>Quest content has successfully been updated!</yellow>"));
-        questProvider.saveQuests();
-
-        distributedBooks.remove(oldMeta);
-        if (!event.isSigning()) {
-            distributedBooks.put(newMeta, quest);
-        } else {
-            Arrays.stream(event.getPlayer().getInventory().getContents())
-                    .filter(item -> item != null && item.hasItemMeta() && item.getItemMeta() instanceof BookMeta)
-                    .filter(item -> item.getItemMeta() == newMeta)
-                    .findFirst()
-                    .ifPresent(item -> {
-                        event.setCancelled(true);
-                        event.getPlayer().getInventory().removeItem(item);
-                        // TODO Does this work and is it needed?
-                    });
+        player.sendMessage(format("<yellow>Quest content has successfully been updated!</yellow>"));
+        questProvider.saveQuest(quest);
+
+        if (event.isSigning()) {
+            // The signed book is written back after the event, so remove it on the next tick
+            endSession(token);
+            event.setSigning(false);
+            Bukkit.getScheduler().runTask(plugin, () -> removeBooks(player, token));
         }
     }
 
+    /**
+     * A listener to end edit sessions when their book is dropped.
+     * @param event The event parameters
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onQuestBookDropped(PlayerDropItemEvent event) {
+        String token = getToken(event.getItemDrop().getItemStack());
+        if (token == null)
+            return;
+
+        endSession(token);
+        event.getItemDrop().remove();
+        event.getPlayer().sendMessage(format("<yellow>The quest edit session has ended.</yellow>"));
+    }
+
+    /**
+     * A listener to end the edit sessions of players leaving the server, removing their books.
+     * @param event The event parameters
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        Set<String> tokens = playerSessions.remove(event.getPlayer().getUniqueId());
+        if (tokens == null)
+            return;
+
+        for (String token : tokens) {
+            sessions.remove(token);
+            removeBooks(event.getPlayer(), token);
+        }
+    }
+
+    /**
+     * Utility function to end an edit session.
+     * @param token The session token
+     */
+    private void endSession(String token) {
+        EditSession session = sessions.remove(token);
+        if (session == null)
+            return;
+
+        Set<String> tokens = playerSessions.get(session.player());
+        if (tokens != null) {
+            tokens.remove(token);
+            if (tokens.isEmpty())
+                playerSessions.remove(session.player());
+        }
+    }
+
+    /**
+     * Utility function to end every expired edit session - their books are left inert.
+     */
+    private void purgeExpired() {
+        long now = System.nanoTime();
+        Iterator<Map.Entry<String, EditSession>> iterator = sessions.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, EditSession> entry = iterator.next();
+            if (now - entry.getValue().expiresAt() <= 0)
+                continue;
+
+            iterator.remove();
+            Set<String> tokens = playerSessions.get(entry.getValue().player());
+            if (tokens != null && tokens.remove(entry.getKey()) && tokens.isEmpty())
+                playerSessions.remove(entry.getValue().player());
+        }
+    }
+
+    /**
+     * Utility function to remove every book stamped with a session token from a player's inventory.
+     * @param player The player
+     * @param token The session token
+     */
+    private void removeBooks(Player player, String token) {
+        PlayerInventory inventory = player.getInventory();
+        ItemStack[] contents = inventory.getContents();
+        for (int slot = 0; slot < contents.length; slot++) {
+            if (token.equals(getToken(contents[slot])))
+                inventory.setItem(slot, null);
+        }
+    }
+
+    /**
+     * Utility function to read the session token from an item.
+     * @param stack The item
+     * @return The session token, or null if the item is not an editable quest book
+     */
+    private String getToken(ItemStack stack) {
+        if (stack == null || stack.isEmpty())
+            return null;
+        return stack.getPersistentDataContainer().get(sessionKey, PersistentDataType.STRING);
+    }
+
+    /**
+     * An edit session.
+     * @param player The unique id of the player editing the quest
+     * @param quest The quest being edited
+     * @param expiresAt The {@link System#nanoTime()} after which the session is expired
+     */
+    private record EditSession(UUID player, Quest quest, long expiresAt) {
+    }
+
 }
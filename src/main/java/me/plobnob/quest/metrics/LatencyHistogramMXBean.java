@@ -0,0 +1,20 @@
+package me.plobnob.quest.metrics;
+
+/**
+ * The JMX view of a latency histogram - latencies are reported in milliseconds.
+ */
+public interface LatencyHistogramMXBean {
+
+    long getCount();
+
+    double getAverageMillis();
+
+    double getP50Millis();
+
+    double getP95Millis();
+
+    double getP99Millis();
+
+    double getMaxMillis();
+
+}
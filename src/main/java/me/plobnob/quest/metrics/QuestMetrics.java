@@ -0,0 +1,232 @@
+package me.plobnob.quest.metrics;
+
+import org.bukkit.plugin.Plugin;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.IntSupplier;
+
+/**
+ * Runtime metrics for the plugin - a latency histogram per operation and gauges for live state.
+ * When disabled every call returns immediately without reading the clock, so instrumented code costs nothing.
+ * Metrics are readable through the stats subcommand and, optionally, as JMX MBeans under {@value #JMX_DOMAIN}.
+ */
+public class QuestMetrics implements QuestMetricsMXBean {
+
+    // JMX domain for the registered MBeans
+    private static final String JMX_DOMAIN = "me.plobnob.quest";
+
+    // Member variables - histograms are only created when metrics are enabled
+    private final boolean enabled;
+    private final Map<Operation, LatencyHistogram> histograms = new EnumMap<>(Operation.class);
+    private final Map<Gauge, IntSupplier> gauges = new EnumMap<>(Gauge.class);
+    private final List<ObjectName> registeredBeans = new ArrayList<>();
+
+    /**
+     * Default constructor.
+     * @param enabled Whether metrics are recorded
+     */
+    public QuestMetrics(boolean enabled) {
+        this.enabled = enabled;
+        if (enabled) {
+            for (Operation operation : Operation.values())
+                histograms.put(operation, new LatencyHistogram());
+        }
+    }
+
+    /**
+     * Function to create metrics from the plugin config.
+     * @param plugin The plugin instance
+     * @return The configured metrics
+     */
+    public static QuestMetrics fromConfig(Plugin plugin) {
+        return new QuestMetrics(plugin.getConfig().getBoolean("metrics.enabled", true));
+    }
+
+    /**
+     * Function to create metrics which record nothing.
+     * @return Disabled metrics
+     */
+    public static QuestMetrics disabled() {
+        return new QuestMetrics(false);
+    }
+
+    /**
+     * Function to check whether metrics are recorded.
+     * @return Whether metrics are enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Function to start timing an operation.
+     * @return The start time to pass to {@link #record(Operation, long)}, or 0 if metrics are disabled
+     */
+    public long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Function to measure the time since a start time returned by {@link #start()}.
+     * @param start The start time
+     * @return The elapsed time in nanoseconds, or 0 if metrics are disabled
+     */
+    public long elapsed(long start) {
+        return enabled ? System.nanoTime() - start : 0;
+    }
+
+    /**
+     * Function to record an operation which started at a time returned by {@link #start()}.
+     * @param operation The operation
+     * @param start The start time
+     */
+    public void record(Operation operation, long start) {
+        if (enabled)
+            histograms.get(operation).record(System.nanoTime() - start);
+    }
+
+    /**
+     * Function to record an operation's latency measured elsewhere (for work split across threads).
+     * @param operation The operation
+     * @param nanos The latency in nanoseconds
+     */
+    public void recordNanos(Operation operation, long nanos) {
+        if (enabled)
+            histograms.get(operation).record(nanos);
+    }
+
+    /**
+     * Function to get the histogram of an operation.
+     * @param operation The operation
+     * @return The histogram, or null if metrics are disabled
+     */
+    public LatencyHistogram getHistogram(Operation operation) {
+        return histograms.get(operation);
+    }
+
+    /**
+     * Function to provide the value of a gauge - the supplier must be safe to call from any thread.
+     * @param gauge The gauge
+     * @param supplier The gauge value supplier
+     */
+    public void gauge(Gauge gauge, IntSupplier supplier) {
+        if (enabled)
+            gauges.put(gauge, supplier);
+    }
+
+    /**
+     * Function to read a gauge.
+     * @param gauge The gauge
+     * @return The gauge value, or 0 if it is not provided
+     */
+    public int getGauge(Gauge gauge) {
+        IntSupplier supplier = gauges.get(gauge);
+        return supplier == null ? 0 : supplier.getAsInt();
+    }
+
+    @Override
+    public int getCatalogueSize() {
+        return getGauge(Gauge.CATALOGUE_SIZE);
+    }
+
+    @Override
+    public int getOpenQuestBooks() {
+        return getGauge(Gauge.OPEN_QUEST_BOOKS);
+    }
+
+    @Override
+    public int getEditSessions() {
+        return getGauge(Gauge.EDIT_SESSIONS);
+    }
+
+    /**
+     * Function to register the metrics as JMX MBeans, if enabled in the plugin config.
+     * @param plugin The plugin instance
+     */
+    public void registerMBeans(Plugin plugin) {
+        if (!enabled || !plugin.getConfig().getBoolean("metrics.jmx", true))
+            return;
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            register(server, this, new ObjectName(JMX_DOMAIN + ":type=Gauges"));
+            for (Map.Entry<Operation, LatencyHistogram> entry : histograms.entrySet())
+                register(server, entry.getValue(), new ObjectName(JMX_DOMAIN + ":type=Operation,name=" + entry.getKey().getKey()));
+        } catch (JMException ex) {
+            plugin.getComponentLogger().warn("Failed to register metrics with JMX!", ex);
+        }
+    }
+
+    /**
+     * Function to unregister every JMX MBean (in the event of a disable).
+     */
+    public void unregisterMBeans() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName name : registeredBeans) {
+            try {
+                server.unregisterMBean(name);
+            } catch (JMException ignored) {
+                // Already unregistered
+            }
+        }
+        registeredBeans.clear();
+    }
+
+    /**
+     * Utility function to register an MBean, replacing any left behind by a previous instance of the plugin.
+     * @param server The MBean server
+     * @param bean The MBean
+     * @param name The MBean name
+     * @throws JMException If the MBean could not be registered
+     */
+    private void register(MBeanServer server, Object bean, ObjectName name) throws JMException {
+        if (server.isRegistered(name))
+            server.unregisterMBean(name);
+        server.registerMBean(bean, name);
+        registeredBeans.add(name);
+    }
+
+    /**
+     * An instrumented operation.
+     */
+    public enum Operation {
+        // From the open request until the inventory is shown, including the hop back to the server thread
+        GUI_OPEN,
+        // Handling a click inside the questbook GUI
+        CLICK,
+        // Compiling and assembling a content book, excluding placeholder resolution
+        BOOK_RENDER,
+        // Resolving every placeholder for a book
+        PLACEHOLDER_RESOLVE,
+        // Serializing and writing a save
+        SAVE,
+        // Suggesting quest names
+        TAB_COMPLETE;
+
+        /**
+         * Function to get the operation's key, as shown in the stats command and JMX.
+         * @return The lower-case key
+         */
+        public String getKey() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /**
+     * A gauge of live plugin state.
+     */
+    public enum Gauge {
+        CATALOGUE_SIZE,
+        OPEN_QUEST_BOOKS,
+        EDIT_SESSIONS
+    }
+
+}
@@ -0,0 +1,14 @@
+package me.plobnob.quest.metrics;
+
+/**
+ * The JMX view of the plugin's gauges.
+ */
+public interface QuestMetricsMXBean {
+
+    int getCatalogueSize();
+
+    int getOpenQuestBooks();
+
+    int getEditSessions();
+
+}
@@ -0,0 +1,38 @@
+package me.plobnob.quest.provider;
+
+/**
+ * A listener notified by the quest provider whenever the quest catalogue changes.
+ * Used to keep derived indexes and caches in sync without rescanning every quest.
+ */
+public interface CatalogueListener {
+
+    /**
+     * Function called after a quest has been registered.
+     * @param quest The registered quest
+     */
+    default void questRegistered(Quest quest) {
+    }
+
+    /**
+     * Function called after a quest has been unregistered.
+     * @param quest The unregistered quest
+     */
+    default void questUnregistered(Quest quest) {
+    }
+
+    /**
+     * Function called after a quest has been renamed.
+     * @param quest The renamed quest (already holding its new name)
+     * @param oldName The previous quest name
+     */
+    default void questRenamed(Quest quest, String oldName) {
+    }
+
+    /**
+     * Function called after one of a quest's fields has been edited and saved.
+     * @param quest The edited quest
+     */
+    default void questChanged(Quest quest) {
+    }
+
+}
@@ -0,0 +1,206 @@
+package me.plobnob.quest.provider;
+
+import lombok.Getter;
+import me.clip.placeholderapi.PlaceholderAPI;
+import me.plobnob.quest.metrics.QuestMetrics;
+import org.bukkit.Bukkit;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.plugin.Plugin;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A class to resolve PlaceholderAPI placeholders for players.
+ * Resolved values are cached per player and placeholder with a configurable time to live, and the time taken
+ * to resolve each placeholder is recorded to help find slow expansions.
+ */
+public class PlaceholderProvider implements Listener {
+
+    // Member variables - configuration is read once on construction
+    private final Plugin plugin;
+    private final PlaceholderSource source;
+    private final QuestMetrics metrics;
+    private final long defaultTtl;
+    private final Map<String, Long> ttls = new HashMap<>();
+    private final long slowThreshold;
+    private final Map<UUID, Map<String, CachedValue>> cache = new ConcurrentHashMap<>();
+    @Getter
+    private final Map<String, PlaceholderTiming> timings = new ConcurrentHashMap<>();
+
+    /**
+     * Default constructor - resolves through PlaceholderAPI when it is installed.
+     * @param plugin The plugin instance
+     * @param metrics The plugin metrics
+     */
+    public PlaceholderProvider(Plugin plugin, QuestMetrics metrics) {
+        this(plugin, Bukkit.getPluginManager().isPluginEnabled("PlaceholderAPI")
+                ? (player, placeholder) -> PlaceholderAPI.setPlaceholders(player, placeholder)
+                : (player, placeholder) -> placeholder, metrics);
+    }
+
+    /**
+     * Constructor with an explicit placeholder source.
+     * @param plugin The plugin instance
+     * @param source The source used to resolve placeholders which are not cached
+     * @param metrics The plugin metrics
+     */
+    public PlaceholderProvider(Plugin plugin, PlaceholderSource source, QuestMetrics metrics) {
+        this.plugin = plugin;
+        this.source = source;
+        this.metrics = metrics;
+        this.defaultTtl = TimeUnit.SECONDS.toNanos(plugin.getConfig().getLong("placeholders.default-ttl", 5));
+        this.slowThreshold = TimeUnit.MILLISECONDS.toNanos(plugin.getConfig().getLong("placeholders.slow-threshold", 5));
+
+        ConfigurationSection section = plugin.getConfig().getConfigurationSection("placeholders.ttl");
+        if (section != null) {
+            for (String key : section.getKeys(false))
+                ttls.put(key.toLowerCase(), TimeUnit.SECONDS.toNanos(section.getLong(key)));
+        }
+    }
+
+    /**
+     * Function to resolve a set of placeholders for a player.
+     * Repeated placeholders are resolved once, and cached values are reused until their time to live expires.
+     * @param player The player to resolve placeholders for
+     * @param placeholders The placeholders (including percent signs) to resolve
+     * @return A map of each placeholder to its resolved value
+     */
+    public Map<String, String> resolve(Player player, Collection<String> placeholders) {
+        Map<String, String> resolved = new HashMap<>();
+        if (placeholders.isEmpty())
+            return resolved;
+
+        long start = metrics.start();
+        Map<String, CachedValue> playerCache = cache.computeIfAbsent(player.getUniqueId(), uuid -> new ConcurrentHashMap<>());
+        long now = System.nanoTime();
+
+        for (String placeholder : placeholders) {
+            if (resolved.containsKey(placeholder))
+                continue;
+
+            CachedValue cached = playerCache.get(placeholder);
+            if (cached != null && now - cached.expiry() < 0) {
+                resolved.put(placeholder, cached.value());
+                continue;
+            }
+
+            long start = System.nanoTime();
+            String value = source.resolve(player, placeholder);
+            long elapsed = System.nanoTime() - start;
+            record(placeholder, elapsed);
+
+            long ttl = getTtl(placeholder);
+            if (ttl > 0)
+                playerCache.put(placeholder, new CachedValue(value, start + elapsed + ttl));
+            resolved.put(placeholder, value);
+        }
+
+        metrics.record(QuestMetrics.Operation.PLACEHOLDER_RESOLVE, start);
+        return resolved;
+    }
+
+    /**
+     * Function to drop every cached value for a player.
+     * @param uuid The player's unique id
+     */
+    public void invalidate(UUID uuid) {
+        cache.remove(uuid);
+    }
+
+    /**
+     * A listener to drop cached values for players leaving the server.
+     * @param event The event parameters
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        invalidate(event.getPlayer().getUniqueId());
+    }
+
+    /**
+     * Utility function to get the time to live for a placeholder.
+     * @param placeholder The placeholder including percent signs
+     * @return The time to live in nanoseconds
+     */
+    private long getTtl(String placeholder) {
+        if (ttls.isEmpty())
+            return defaultTtl;
+        String key = placeholder.substring(1, placeholder.length() - 1).toLowerCase();
+        return ttls.getOrDefault(key, defaultTtl);
+    }
+
+    /**
+     * Utility function to record how long a placeholder took to resolve.
+     * Slow placeholders are only warned about once each - later slow resolutions show up in the stats command.
+     * @param placeholder The resolved placeholder
+     * @param elapsed The time taken in nanoseconds
+     */
+    private void record(String placeholder, long elapsed) {
+        PlaceholderTiming timing = timings.computeIfAbsent(placeholder, key -> new PlaceholderTiming());
+        timing.record(elapsed);
+        if (elapsed > slowThreshold && timing.slowWarned.compareAndSet(false, true)) {
+            plugin.getComponentLogger().warn("Placeholder {} took {}ms to resolve - consider raising its cache ttl! Further slow resolutions are shown in /questbook stats.",
+                    placeholder, TimeUnit.NANOSECONDS.toMillis(elapsed));
+        }
+    }
+
+    /**
+     * A source of placeholder values, resolving a single placeholder for a player.
+     */
+    @FunctionalInterface
+    public interface PlaceholderSource {
+        String resolve(Player player, String placeholder);
+    }
+
+    /**
+     * A cached placeholder value.
+     * @param value The resolved value
+     * @param expiry The {@link System#nanoTime()} after which the value is stale
+     */
+    private record CachedValue(String value, long expiry) {
+    }
+
+    /**
+     * Resolution timings for a single placeholder.
+     */
+    public static class PlaceholderTiming {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final AtomicBoolean slowWarned = new AtomicBoolean();
+
+        private void record(long elapsed) {
+            count.increment();
+            totalNanos.add(elapsed);
+            maxNanos.accumulateAndGet(elapsed, Math::max);
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getAverageNanos() {
+            long resolutions = count.sum();
+            return resolutions == 0 ? 0 : totalNanos.sum() / resolutions;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+
+    }
+
+}
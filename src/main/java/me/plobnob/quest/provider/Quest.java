@@ -2,8 +2,12 @@ package me.plobnob.quest.provider;
 
 import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
-import me.clip.placeholderapi.PlaceholderAPI;
+import lombok.Setter;
+import lombok.ToString;
+import me.plobnob.quest.util.PageTemplate;
 import me.plobnob.quest.util.TextFormatter;
 import net.kyori.adventure.inventory.Book;
 import net.kyori.adventure.text.Component;
@@ -17,8 +21,13 @@ import org.bukkit.inventory.meta.WritableBookMeta;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
+
+import static me.plobnob.quest.util.PluginConstants.PERM_QUESTBOOK_VIEW_QUEST;
 
 /**
  * Data class to contain quest information.
@@ -37,6 +46,29 @@ public class Quest implements ConfigurationSerializable, TextFormatter {
     private String description;
     private ItemStack displayStack;
     private List<String> pages;
+    private List<String> tags;
+    private String category;
+    private long updated;
+
+    // Permission cache - the per-quest view permission node, cleared whenever the quest is renamed
+    @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE) @EqualsAndHashCode.Exclude @ToString.Exclude
+    private transient String viewPermission;
+
+    // Render cache - the finished display stack, stamped with the render version it was built from (may be built off the server thread)
+    @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE) @EqualsAndHashCode.Exclude @ToString.Exclude
+    private transient volatile int renderVersion;
+    @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE) @EqualsAndHashCode.Exclude @ToString.Exclude
+    private transient int renderedVersion = -1;
+    @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE) @EqualsAndHashCode.Exclude @ToString.Exclude
+    private transient ItemStack renderedStack;
+
+    // Page cache - pages compiled into templates, cleared whenever the pages are replaced
+    @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE) @EqualsAndHashCode.Exclude @ToString.Exclude
+    private transient volatile List<PageTemplate> compiledPages;
+
+    // Page store reference - set once pages are moved out of the heap (pages is then null until the next edit)
+    @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE) @EqualsAndHashCode.Exclude @ToString.Exclude
+    private transient volatile QuestPageStore.PageRef mappedPages;
 
     /*
         Suppressions:
@@ -52,30 +84,232 @@ public class Quest implements ConfigurationSerializable, TextFormatter {
         description = (String) map.get("description");
         displayStack = (ItemStack) map.get("displayStack");
         pages = (List<String>) map.get("pages");
+        // Hand edited files are not validated on save - drop tags which the catalogue index could not match
+        List<String> validTags = new ArrayList<>();
+        if (map.get("tags") instanceof List<?> list) {
+            for (Object tag : list) {
+                String validTag = validTag(tag);
+                if (validTag != null)
+                    validTags.add(validTag);
+            }
+        }
+        setTags(validTags);
+        setCategory(validTag(map.get("category")));
+        updated = map.get("updated") instanceof Number number ? number.longValue() : 0;
+    }
+
+    /**
+     * Function to set the name - invalidates the cached view permission.
+     * Registered quests should be renamed through the quest provider to keep its name index consistent.
+     * @param name The new name
+     */
+    public void setName(String name) {
+        this.name = name;
+        viewPermission = null;
+    }
+
+    /**
+     * Function to get the permission node granting view access to this quest.
+     * @return The view permission node
+     */
+    public String getViewPermission() {
+        String permission = viewPermission;
+        if (permission == null) {
+            permission = String.format(PERM_QUESTBOOK_VIEW_QUEST, name);
+            viewPermission = permission;
+        }
+        return permission;
+    }
+
+    /**
+     * Function to set the display name - invalidates the cached display stack.
+     * @param displayName The new display name
+     */
+    public void setDisplayName(String displayName) {
+        this.displayName = displayName;
+        renderVersion++;
+    }
+
+    /**
+     * Function to set the difficulty - invalidates the cached display stack.
+     * @param difficulty The new difficulty
+     */
+    public void setDifficulty(String difficulty) {
+        this.difficulty = difficulty;
+        renderVersion++;
+    }
+
+    /**
+     * Function to set the description - invalidates the cached display stack.
+     * @param description The new description
+     */
+    public void setDescription(String description) {
+        this.description = description;
+        renderVersion++;
+    }
+
+    /**
+     * Function to set the base display stack - invalidates the cached display stack.
+     * @param displayStack The new base itemstack
+     */
+    public void setDisplayStack(ItemStack displayStack) {
+        this.displayStack = displayStack;
+        renderVersion++;
+    }
+
+    /**
+     * Function to get the tags - never null.
+     * @return The tags, in the order they were set
+     */
+    public List<String> getTags() {
+        return tags == null ? List.of() : tags;
+    }
+
+    /**
+     * Function to set the tags - invalidates the cached display stack.
+     * @param tags The new tags
+     */
+    public void setTags(List<String> tags) {
+        this.tags = tags == null || tags.isEmpty() ? null : List.copyOf(tags);
+        renderVersion++;
+    }
+
+    /**
+     * Function to set the category - invalidates the cached display stack.
+     * @param category The new category, or null for none
+     */
+    public void setCategory(String category) {
+        this.category = category;
+        renderVersion++;
+    }
+
+    /**
+     * Utility function to read a deserialised tag or category, as the catalogue index expects it.
+     * @param value The deserialised value
+     * @return The lowercased tag, or null if the value is not a valid tag
+     */
+    private static String validTag(Object value) {
+        if (!(value instanceof String tag))
+            return null;
+        String normalised = tag.trim().toLowerCase(Locale.ROOT);
+        return QuestCatalogueIndex.isValidTag(normalised) ? normalised : null;
+    }
+
+    /**
+     * Function to get the book pages, reading them from the page store if they are not held in memory.
+     * @return The raw pages
+     */
+    public List<String> getPages() {
+        if (pages != null)
+            return pages;
+        return mappedPages == null ? List.of() : mappedPages.store().read(mappedPages);
+    }
+
+    /**
+     * Function to set the book pages - the compiled page templates are rebuilt on the next render.
+     * @param pages The new raw pages
+     */
+    public void setPages(List<String> pages) {
+        this.pages = pages;
+        mappedPages = null;
+        compiledPages = null;
+    }
+
+    /**
+     * Utility function to release the in-memory pages once they have been written to a page store.
+     * @param ref The reference to the pages within the page store
+     */
+    void movePages(QuestPageStore.PageRef ref) {
+        mappedPages = ref;
+        pages = null;
+        compiledPages = null;
+    }
+
+    /**
+     * Function to check whether another quest holds the same stored content as this one.
+     * @param other The quest to compare against
+     * @return Whether every stored field matches
+     */
+    public boolean hasSameContent(Quest other) {
+        return Objects.equals(name, other.name)
+                && Objects.equals(displayName, other.displayName)
+                && Objects.equals(author, other.author)
+                && Objects.equals(difficulty, other.difficulty)
+                && Objects.equals(description, other.description)
+                && Objects.equals(displayStack, other.displayStack)
+                && getPages().equals(other.getPages())
+                && getTags().equals(other.getTags())
+                && Objects.equals(category, other.category)
+                && updated == other.updated;
+    }
+
+    /**
+     * Function to replace the stored content with another quest's, invalidating every cache.
+     * Registered quests should only take a name differing by case, to keep the provider's name index consistent.
+     * @param other The quest to copy from
+     */
+    public void copyFrom(Quest other) {
+        setName(other.name);
+        setDisplayName(other.displayName);
+        setAuthor(other.author);
+        setDifficulty(other.difficulty);
+        setDescription(other.description);
+        setDisplayStack(other.displayStack);
+        setPages(other.getPages());
+        setTags(other.getTags());
+        setCategory(other.category);
+        setUpdated(other.updated);
     }
 
     /**
      * Function to get the display stack.
-     * Preference for this over default lombok to infer a default if the given stack is null or air
+     * Preference for this over default lombok to infer a default if the given stack is null or air.
+     * The rendered stack is built once per render version and handed out as a copy.
+     * Safe to call off the server thread - an edit made mid-render leaves the stack stamped with the older version.
      * @return The generated itemstack for display
      */
-    public ItemStack getDisplayStack() {
-        if (displayStack == null || displayStack.getType() == Material.AIR) {
-            displayStack = new ItemStack(Material.BOOK, 1);
+    public synchronized ItemStack getDisplayStack() {
+        int version = renderVersion;
+        if (renderedStack == null || renderedVersion != version) {
+            renderedStack = renderDisplayStack();
+            renderedVersion = version;
         }
+        return renderedStack.clone();
+    }
+
+    /**
+     * Utility function to get the base display stack, defaulting to a book if the given stack is null or air.
+     * @return The base itemstack without any rendered name or lore
+     */
+    ItemStack getBaseStack() {
+        if (displayStack == null || displayStack.getType() == Material.AIR)
+            return new ItemStack(Material.BOOK, 1);
+        return displayStack;
+    }
 
-        ItemMeta meta = displayStack.getItemMeta();
+    /**
+     * Utility function to build the display stack from the base stack, display name, difficulty and description.
+     * @return A newly rendered itemstack
+     */
+    private ItemStack renderDisplayStack() {
+        ItemStack stack = getBaseStack().clone();
+
+        ItemMeta meta = stack.getItemMeta();
         if (meta != null) {
             meta.displayName(format("<blue>%s</blue>", getDisplayName()));
             List<Component> lore = new ArrayList<>();
             lore.add(format("<gray>Difficulty: </gray>%s", difficulty));
             if (description != null)
                 lore.addAll(wrappedFormat("<gray>Description: </gray>" + description, 60));
+            if (category != null)
+                lore.add(format("<gray>Category: </gray>%s", category));
+            if (!getTags().isEmpty())
+                lore.add(format("<gray>Tags: </gray>%s", String.join(", ", getTags())));
             meta.lore(lore);
         }
-        displayStack.setItemMeta(meta);
+        stack.setItemMeta(meta);
 
-        return displayStack;
+        return stack;
     }
 
     /**
@@ -87,42 +321,82 @@ public class Quest implements ConfigurationSerializable, TextFormatter {
         if (!(stack.getItemMeta() instanceof WritableBookMeta bookMeta))
             return null;
         bookMeta.displayName(format(displayName));
-        bookMeta.setPages(pages);
+        bookMeta.setPages(getPages());
         stack.setItemMeta(bookMeta);
         return stack;
     }
 
     /**
      * Function to generate a content book for quests.
-     * This is adapter using placeholder API for the active player.
+     * This is adapter using placeholder API for the active player - only the placeholder holes are resolved per player,
+     * and placeholders repeated across pages are resolved once.
      * @param player The player to substitute values for.
+     * @param placeholderProvider The provider used to resolve placeholders
      * @return The built book
      */
-    public Book writeBookFor(Player player) {
+    public Book writeBookFor(Player player, PlaceholderProvider placeholderProvider) {
+        List<PageTemplate> compiled = getCompiledPages();
+        return writeBook(compiled, placeholderProvider.resolve(player, PageTemplate.getPlaceholders(compiled)));
+    }
+
+    /**
+     * Function to generate a content book from already compiled pages and resolved placeholder values.
+     * Does not touch the server, so it may be called off the server thread.
+     * @param compiled The compiled page templates, from {@link #getCompiledPages()}
+     * @param values The resolved value of each placeholder on the pages
+     * @return The built book
+     */
+    public Book writeBook(List<PageTemplate> compiled, Map<String, String> values) {
         return Book.builder()
                 .title(format(displayName))
                 .author(format(author))
-                .pages(pages.stream()
-                        .map(page -> PlaceholderAPI.setPlaceholders(player, page))
-                        .map(this::format)
+                .pages(compiled.stream()
+                        .map(page -> page.render(placeholder -> values.getOrDefault(placeholder, placeholder)))
                         .toList())
                 .build();
     }
 
+    /**
+     * Utility function to get the compiled page templates, compiling them on first use after a load or edit.
+     * Pages in a page store are compiled through its bounded cache rather than held by the quest.
+     * Safe to call off the server thread.
+     * @return The compiled page templates
+     */
+    public List<PageTemplate> getCompiledPages() {
+        QuestPageStore.PageRef ref = mappedPages;
+        if (ref != null)
+            return ref.store().compiled(ref);
+
+        List<PageTemplate> compiled = compiledPages;
+        if (compiled == null) {
+            compiled = getPages().stream().map(PageTemplate::compile).toList();
+            compiledPages = compiled;
+        }
+        return compiled;
+    }
+
     /**
      * Utility function to serialize a class instance into a map for storing in yaml
+     * Tags, category and the updated time are optional, so they are only written when set.
      * @return A serialized map
      */
     @Override
     public @NotNull Map<String, Object> serialize() {
-        return Map.of(
+        Map<String, Object> map = new LinkedHashMap<>(Map.of(
                 "name", getName(),
                 "displayName", getDisplayName(),
                 "author", getAuthor(),
                 "difficulty", getDifficulty(),
                 "description", getDescription(),
-                "displayStack", getDisplayStack(),
+                "displayStack", getBaseStack(),
                 "pages", getPages()
-        );
+        ));
+        if (tags != null)
+            map.put("tags", tags);
+        if (category != null)
+            map.put("category", category);
+        if (updated > 0)
+            map.put("updated", updated);
+        return map;
     }
 }
@@ -0,0 +1,259 @@
+package me.plobnob.quest.provider;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An immutable, versioned snapshot of the registered quests - their catalogue order and name index, published together.
+ * A snapshot is never modified once built, so it may be read from any thread without locking. Changes are made through
+ * a {@link Builder}, which produces the next version to be swapped in.
+ * Only membership, order and names are covered - quest contents are still edited in place on the server thread.
+ */
+public final class QuestCatalogue {
+
+    // The catalogue before any quest is loaded
+    public static final QuestCatalogue EMPTY = new QuestCatalogue(List.of(), Map.of(), 0);
+
+    // Member variables - the name index is keyed by normalised name
+    private final List<Quest> quests;
+    private final Map<String, Quest> questsByName;
+    private final long version;
+
+    private QuestCatalogue(List<Quest> quests, Map<String, Quest> questsByName, long version) {
+        this.quests = quests;
+        this.questsByName = questsByName;
+        this.version = version;
+    }
+
+    /**
+     * Function to get every quest, in catalogue order.
+     * The list is shared between versions which only renamed quests.
+     * @return An immutable list of the quests
+     */
+    public List<Quest> getQuests() {
+        return quests;
+    }
+
+    /**
+     * Function to get a quest by its ordinal - its position in catalogue order.
+     * @param ordinal The quest ordinal
+     * @return The quest
+     */
+    public Quest getQuest(int ordinal) {
+        return quests.get(ordinal);
+    }
+
+    /**
+     * Function to find a quest by name, ignoring case.
+     * @param name The quest name
+     * @return The quest, or null if no quest has the given name
+     */
+    public Quest getQuest(String name) {
+        return name == null ? null : questsByName.get(normalise(name));
+    }
+
+    /**
+     * Function to check whether a quest exists with a given name, ignoring case.
+     * @param name The quest name
+     * @return Whether the name is taken
+     */
+    public boolean hasQuest(String name) {
+        return name != null && questsByName.containsKey(normalise(name));
+    }
+
+    /**
+     * Function to get the number of quests.
+     * @return The quest count
+     */
+    public int size() {
+        return quests.size();
+    }
+
+    /**
+     * Function to get the version, which changes whenever quests are registered, unregistered, reordered or renamed.
+     * @return The catalogue version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Function to start building the next version of the catalogue.
+     * @return A builder holding this catalogue's quests
+     */
+    public Builder toBuilder() {
+        return new Builder(this);
+    }
+
+    /**
+     * Utility function to give loaded quests unique names (ignoring case) before they are indexed or written.
+     * The first quest with a name keeps it - any later quest with the same name, or without a name, is renamed to the
+     * first free {@code <name>_<n>}. Older versions allowed names differing only in case.
+     * @param quests The loaded quests, in catalogue order
+     * @return The renamed quests, mapped to their previous name (null if they had none)
+     */
+    static Map<Quest, String> resolveNames(List<Quest> quests) {
+        Set<String> names = new HashSet<>();
+        for (Quest quest : quests) {
+            if (quest.getName() != null)
+                names.add(normalise(quest.getName()));
+        }
+
+        Map<Quest, String> renamed = new IdentityHashMap<>();
+        Set<String> seen = new HashSet<>();
+        for (Quest quest : quests) {
+            if (quest.getName() != null && seen.add(normalise(quest.getName())))
+                continue;
+
+            String oldName = quest.getName();
+            String base = oldName == null ? "unnamed" : oldName;
+            int suffix = 2;
+            while (names.contains(normalise(base + "_" + suffix)))
+                suffix++;
+            quest.setName(base + "_" + suffix);
+            names.add(normalise(quest.getName()));
+            seen.add(normalise(quest.getName()));
+            renamed.put(quest, oldName);
+        }
+        return renamed;
+    }
+
+    /**
+     * Utility function to normalise a quest name for the name index.
+     * @param name The quest name
+     * @return The normalised name
+     */
+    static String normalise(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * A builder for the next version of a catalogue. The quest list and name index are only copied once they are first
+     * changed, so a version which only renames quests shares its list with the one before it.
+     * Not thread safe - builders are only used on the server thread.
+     */
+    public static final class Builder {
+
+        // Member variables - the edited list and index are null until first changed
+        private final QuestCatalogue base;
+        private List<Quest> quests;
+        private Map<String, Quest> questsByName;
+        private boolean changed;
+
+        private Builder(QuestCatalogue base) {
+            this.base = base;
+        }
+
+        /**
+         * Function to find a quest by name in the catalogue being built, ignoring case.
+         * @param name The quest name
+         * @return The quest, or null if no quest has the given name
+         */
+        public Quest getQuest(String name) {
+            return name == null ? null : index().get(normalise(name));
+        }
+
+        /**
+         * Function to append a quest.
+         * @param quest The quest to append
+         * @return Whether the quest was added - false if its name is missing or taken (ignoring case)
+         */
+        public boolean add(Quest quest) {
+            if (quest.getName() == null || getQuest(quest.getName()) != null)
+                return false;
+            editIndex().put(normalise(quest.getName()), quest);
+            editList().add(quest);
+            changed = true;
+            return true;
+        }
+
+        /**
+         * Function to remove a quest.
+         * @param quest The quest to remove
+         * @return Whether the quest was removed - false if it is not in the catalogue
+         */
+        public boolean remove(Quest quest) {
+            if (getQuest(quest.getName()) != quest)
+                return false;
+            editIndex().remove(normalise(quest.getName()));
+            editList().removeIf(registered -> registered == quest);
+            changed = true;
+            return true;
+        }
+
+        /**
+         * Function to move an already renamed quest to its new name in the name index.
+         * Renaming to a name differing only in case is allowed.
+         * @param quest The renamed quest, carrying its new name
+         * @param oldName The quest's previous name
+         * @return Whether the quest was moved - false if another quest already has the new name (ignoring case)
+         */
+        public boolean rename(Quest quest, String oldName) {
+            Quest existing = getQuest(quest.getName());
+            if (existing != null && existing != quest)
+                return false;
+            Map<String, Quest> index = editIndex();
+            index.remove(normalise(oldName), quest);
+            index.put(normalise(quest.getName()), quest);
+            changed = true;
+            return true;
+        }
+
+        /**
+         * Function to put the quests in a new order.
+         * @param order Every quest in the catalogue being built, in their new order
+         */
+        public void reorder(List<Quest> order) {
+            quests = new ArrayList<>(order);
+            changed = true;
+        }
+
+        /**
+         * Function to build the next version of the catalogue.
+         * @return The next version, or the catalogue this builder started from if nothing changed
+         */
+        public QuestCatalogue build() {
+            if (!changed)
+                return base;
+            return new QuestCatalogue(quests == null ? base.quests : List.copyOf(quests),
+                    questsByName == null ? base.questsByName : Map.copyOf(questsByName),
+                    base.version + 1);
+        }
+
+        /**
+         * Utility function to get the name index being built, without copying it.
+         * @return The name index
+         */
+        private Map<String, Quest> index() {
+            return questsByName == null ? base.questsByName : questsByName;
+        }
+
+        /**
+         * Utility function to get an editable copy of the name index.
+         * @return The editable name index
+         */
+        private Map<String, Quest> editIndex() {
+            if (questsByName == null)
+                questsByName = new HashMap<>(base.questsByName);
+            return questsByName;
+        }
+
+        /**
+         * Utility function to get an editable copy of the quest list.
+         * @return The editable quest list
+         */
+        private List<Quest> editList() {
+            if (quests == null)
+                quests = new ArrayList<>(base.quests);
+            return quests;
+        }
+
+    }
+
+}
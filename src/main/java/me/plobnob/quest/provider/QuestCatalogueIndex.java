@@ -0,0 +1,502 @@
+package me.plobnob.quest.provider;
+
+import me.plobnob.quest.validation.QuestVisibilityCache.Visibility;
+import net.kyori.adventure.text.minimessage.MiniMessage;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+/**
+ * An index of quest tags, categories and sort orders over catalogue ordinals, used to slice the questbook GUI.
+ * Each tag and category maps to a bitset of the quests holding it, so filters are bitset intersections, and each sort
+ * order is kept as a precomputed array of ordinals.
+ * The index is rebuilt in full only on startup or a bulk change - registering, unregistering, renaming or editing a
+ * single quest updates it in place. Updates happen on the server thread and publish a new immutable snapshot, so the
+ * index may be read from any thread.
+ */
+public class QuestCatalogueIndex implements CatalogueListener {
+
+    // Tags and categories are lower-case words, so they are safe to type in commands
+    private static final Pattern TAG = Pattern.compile("[a-z0-9_-]{1,32}");
+    private static final BitSet NONE = new BitSet();
+
+    // Member variables
+    private final QuestProvider questProvider;
+    private volatile Snapshot snapshot;
+
+    /**
+     * Default constructor.
+     * @param questProvider The quest provider
+     */
+    public QuestCatalogueIndex(QuestProvider questProvider) {
+        this.questProvider = questProvider;
+    }
+
+    /**
+     * Function to check whether a tag or category name is allowed.
+     * @param tag The tag or category name
+     * @return Whether the name is allowed
+     */
+    public static boolean isValidTag(String tag) {
+        return tag != null && TAG.matcher(tag).matches();
+    }
+
+    @Override
+    public void questRegistered(Quest quest) {
+        Snapshot current = snapshot;
+        List<Quest> catalogue = questProvider.getQuests();
+        if (current != null && current.catalogue == catalogue)
+            return;
+        if (current != null && isAppend(current.catalogue, catalogue, quest))
+            snapshot = current.append(catalogue);
+        else
+            snapshot = Snapshot.build(catalogue);
+    }
+
+    @Override
+    public void questUnregistered(Quest quest) {
+        Snapshot current = snapshot;
+        List<Quest> catalogue = questProvider.getQuests();
+        if (current != null && current.catalogue == catalogue)
+            return;
+        int ordinal = current == null ? -1 : indexOf(current.catalogue, quest);
+        if (ordinal >= 0 && isRemoval(current.catalogue, catalogue, ordinal))
+            snapshot = current.remove(catalogue, ordinal);
+        else
+            snapshot = Snapshot.build(catalogue);
+    }
+
+    @Override
+    public void questRenamed(Quest quest, String oldName) {
+        questChanged(quest);
+    }
+
+    @Override
+    public void questChanged(Quest quest) {
+        Snapshot current = snapshot;
+        List<Quest> catalogue = questProvider.getQuests();
+        int ordinal = current == null || current.catalogue != catalogue ? -1 : indexOf(catalogue, quest);
+        if (ordinal >= 0)
+            snapshot = current.update(ordinal);
+        else
+            snapshot = Snapshot.build(catalogue);
+    }
+
+    /**
+     * Function to narrow a player's visible quests down to a filter, in the filter's sort order.
+     * The order is always rebuilt from the visible quests, as the visibility may come from a view in another order.
+     * @param visibility The quests visible to the player
+     * @param filter The filter
+     * @return The filtered quests, against the same catalogue and version
+     */
+    public Visibility filter(Visibility visibility, Filter filter) {
+        if (filter.equals(Filter.ALL)) {
+            return new Visibility(visibility.catalogue(), visibility.quests(), visibility.quests().stream().toArray(),
+                    visibility.catalogueVersion(), visibility.computedAt());
+        }
+
+        Snapshot current = snapshotFor(visibility);
+        BitSet quests = (BitSet) visibility.quests().clone();
+        if (filter.category() != null)
+            quests.and(current.categories.getOrDefault(filter.category(), NONE));
+        for (String tag : filter.tags())
+            quests.and(current.tags.getOrDefault(tag, NONE));
+
+        int[] ordinals = filter.sort() == QuestSort.CATALOGUE
+                ? quests.stream().toArray()
+                : Arrays.stream(current.sorted.get(filter.sort())).filter(quests::get).toArray();
+        return new Visibility(visibility.catalogue(), quests, ordinals, visibility.catalogueVersion(), visibility.computedAt());
+    }
+
+    /**
+     * Function to count a player's visible quests in each category.
+     * @param visibility The quests visible to the player
+     * @return The number of visible quests by category, for categories with any, ordered by name
+     */
+    public SortedMap<String, Integer> getCategoryCounts(Visibility visibility) {
+        SortedMap<String, Integer> counts = new TreeMap<>();
+        snapshotFor(visibility).categories.forEach((category, quests) -> {
+            BitSet visible = (BitSet) quests.clone();
+            visible.and(visibility.quests());
+            if (!visible.isEmpty())
+                counts.put(category, visible.cardinality());
+        });
+        return counts;
+    }
+
+    /**
+     * Function to check whether any quest has a category, in which case the questbook opens on its category page.
+     * @return Whether any quest has a category
+     */
+    public boolean hasCategories() {
+        Snapshot current = snapshot;
+        return current != null && !current.categories.isEmpty();
+    }
+
+    /**
+     * Utility function to get a snapshot over the same catalogue as a visibility - normally the published snapshot,
+     * unless the catalogue changed while the visibility was being used.
+     * @param visibility The visibility
+     * @return The snapshot
+     */
+    private Snapshot snapshotFor(Visibility visibility) {
+        Snapshot current = snapshot;
+        return current != null && current.catalogue == visibility.catalogue() ? current : Snapshot.build(visibility.catalogue());
+    }
+
+    /**
+     * Utility function to check whether a catalogue is another with a quest appended.
+     * @param previous The previous catalogue
+     * @param catalogue The new catalogue
+     * @param quest The registered quest
+     * @return Whether the quest was appended and nothing else changed
+     */
+    private static boolean isAppend(List<Quest> previous, List<Quest> catalogue, Quest quest) {
+        if (catalogue.size() != previous.size() + 1 || catalogue.getLast() != quest)
+            return false;
+        for (int i = 0; i < previous.size(); i++) {
+            if (catalogue.get(i) != previous.get(i))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Utility function to check whether a catalogue is another with a single quest removed.
+     * @param previous The previous catalogue
+     * @param catalogue The new catalogue
+     * @param ordinal The ordinal of the removed quest in the previous catalogue
+     * @return Whether the quest was removed and nothing else changed
+     */
+    private static boolean isRemoval(List<Quest> previous, List<Quest> catalogue, int ordinal) {
+        if (catalogue.size() != previous.size() - 1)
+            return false;
+        for (int i = 0; i < catalogue.size(); i++) {
+            if (catalogue.get(i) != previous.get(i < ordinal ? i : i + 1))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Utility function to find a quest's ordinal by identity.
+     * @param catalogue The catalogue
+     * @param quest The quest
+     * @return The ordinal, or -1 if the quest is not in the catalogue
+     */
+    private static int indexOf(List<Quest> catalogue, Quest quest) {
+        for (int i = 0; i < catalogue.size(); i++) {
+            if (catalogue.get(i) == quest)
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * A slice of the catalogue to browse.
+     * @param category The category to show, or null for every category
+     * @param tags The tags every shown quest must have
+     * @param sort The order to show quests in
+     */
+    public record Filter(String category, Set<String> tags, QuestSort sort) {
+
+        // Every quest, in catalogue order
+        public static final Filter ALL = new Filter(null, Set.of(), QuestSort.CATALOGUE);
+
+        /**
+         * Function to get this filter in another order.
+         * @param sort The order
+         * @return The reordered filter
+         */
+        public Filter withSort(QuestSort sort) {
+            return new Filter(category, tags, sort);
+        }
+
+    }
+
+    /**
+     * The sortable and filterable fields of a quest, normalised for comparison.
+     * @param name The lower-case name
+     * @param difficulty The lower-case difficulty, without tags
+     * @param author The lower-case author, without tags
+     * @param updated When the quest was last updated
+     * @param tags The lower-case tags
+     * @param category The lower-case category, or null
+     */
+    private record Entry(String name, String difficulty, String author, long updated, List<String> tags, String category) {
+
+        private static Entry of(Quest quest) {
+            return new Entry(normalise(quest.getName()),
+                    normalise(quest.getDifficulty()),
+                    normalise(quest.getAuthor()),
+                    quest.getUpdated(),
+                    quest.getTags().stream().map(tag -> tag.toLowerCase(Locale.ROOT)).distinct().toList(),
+                    quest.getCategory() == null ? null : quest.getCategory().toLowerCase(Locale.ROOT));
+        }
+
+        private static String normalise(String text) {
+            return text == null ? "" : MiniMessage.miniMessage().stripTags(text).toLowerCase(Locale.ROOT);
+        }
+
+    }
+
+    /**
+     * An immutable index over one catalogue - every update returns a new snapshot, sharing whatever did not change.
+     */
+    private static final class Snapshot {
+
+        // Member variables - bitsets and arrays are never modified once published
+        private final List<Quest> catalogue;
+        private final Entry[] entries;
+        private final Map<String, BitSet> tags;
+        private final Map<String, BitSet> categories;
+        private final Map<QuestSort, int[]> sorted;
+
+        private Snapshot(List<Quest> catalogue, Entry[] entries, Map<String, BitSet> tags, Map<String, BitSet> categories,
+                         Map<QuestSort, int[]> sorted) {
+            this.catalogue = catalogue;
+            this.entries = entries;
+            this.tags = tags;
+            this.categories = categories;
+            this.sorted = sorted;
+        }
+
+        /**
+         * Function to index a catalogue from scratch.
+         * @param catalogue The catalogue
+         * @return The snapshot
+         */
+        private static Snapshot build(List<Quest> catalogue) {
+            Entry[] entries = new Entry[catalogue.size()];
+            Map<String, BitSet> tags = new HashMap<>();
+            Map<String, BitSet> categories = new HashMap<>();
+            for (int ordinal = 0; ordinal < entries.length; ordinal++) {
+                Entry entry = Entry.of(catalogue.get(ordinal));
+                entries[ordinal] = entry;
+                for (String tag : entry.tags())
+                    tags.computeIfAbsent(tag, ignored -> new BitSet()).set(ordinal);
+                if (entry.category() != null)
+                    categories.computeIfAbsent(entry.category(), ignored -> new BitSet()).set(ordinal);
+            }
+
+            Map<QuestSort, int[]> sorted = new EnumMap<>(QuestSort.class);
+            for (QuestSort sort : QuestSort.values()) {
+                if (sort != QuestSort.CATALOGUE)
+                    sorted.put(sort, IntStream.range(0, entries.length).boxed()
+                            .sorted((a, b) -> compare(sort, entries, a, b))
+                            .mapToInt(Integer::intValue)
+                            .toArray());
+            }
+            return new Snapshot(catalogue, entries, tags, categories, sorted);
+        }
+
+        /**
+         * Function to index a quest appended to the catalogue.
+         * @param catalogue The catalogue, with the quest appended
+         * @return The updated snapshot
+         */
+        private Snapshot append(List<Quest> catalogue) {
+            int ordinal = entries.length;
+            Entry[] updatedEntries = Arrays.copyOf(entries, ordinal + 1);
+            updatedEntries[ordinal] = Entry.of(catalogue.get(ordinal));
+
+            Map<String, BitSet> updatedTags = new HashMap<>(tags);
+            for (String tag : updatedEntries[ordinal].tags())
+                setBit(updatedTags, tag, ordinal, true);
+            Map<String, BitSet> updatedCategories = new HashMap<>(categories);
+            if (updatedEntries[ordinal].category() != null)
+                setBit(updatedCategories, updatedEntries[ordinal].category(), ordinal, true);
+
+            Map<QuestSort, int[]> updatedSorted = new EnumMap<>(QuestSort.class);
+            sorted.forEach((sort, ordinals) -> updatedSorted.put(sort, insert(sort, updatedEntries, ordinals, ordinal)));
+            return new Snapshot(catalogue, updatedEntries, updatedTags, updatedCategories, updatedSorted);
+        }
+
+        /**
+         * Function to drop a quest removed from the catalogue, shifting the ordinals after it down by one.
+         * @param catalogue The catalogue, without the quest
+         * @param ordinal The quest's ordinal in this snapshot
+         * @return The updated snapshot
+         */
+        private Snapshot remove(List<Quest> catalogue, int ordinal) {
+            Entry[] updatedEntries = new Entry[entries.length - 1];
+            System.arraycopy(entries, 0, updatedEntries, 0, ordinal);
+            System.arraycopy(entries, ordinal + 1, updatedEntries, ordinal, updatedEntries.length - ordinal);
+
+            Map<QuestSort, int[]> updatedSorted = new EnumMap<>(QuestSort.class);
+            sorted.forEach((sort, ordinals) -> {
+                int[] shifted = new int[ordinals.length - 1];
+                int next = 0;
+                for (int existing : ordinals) {
+                    if (existing != ordinal)
+                        shifted[next++] = existing > ordinal ? existing - 1 : existing;
+                }
+                updatedSorted.put(sort, shifted);
+            });
+            return new Snapshot(catalogue, updatedEntries, removeBit(tags, ordinal), removeBit(categories, ordinal), updatedSorted);
+        }
+
+        /**
+         * Function to re-index a quest edited or renamed in place.
+         * @param ordinal The quest's ordinal
+         * @return The updated snapshot
+         */
+        private Snapshot update(int ordinal) {
+            Entry previous = entries[ordinal];
+            Entry entry = Entry.of(catalogue.get(ordinal));
+            if (entry.equals(previous))
+                return this;
+
+            Entry[] updatedEntries = entries.clone();
+            updatedEntries[ordinal] = entry;
+
+            Map<String, BitSet> updatedTags = tags;
+            if (!entry.tags().equals(previous.tags())) {
+                updatedTags = new HashMap<>(tags);
+                for (String tag : previous.tags())
+                    setBit(updatedTags, tag, ordinal, false);
+                for (String tag : entry.tags())
+                    setBit(updatedTags, tag, ordinal, true);
+            }
+            Map<String, BitSet> updatedCategories = categories;
+            if (!Objects.equals(entry.category(), previous.category())) {
+                updatedCategories = new HashMap<>(categories);
+                if (previous.category() != null)
+                    setBit(updatedCategories, previous.category(), ordinal, false);
+                if (entry.category() != null)
+                    setBit(updatedCategories, entry.category(), ordinal, true);
+            }
+
+            Map<QuestSort, int[]> updatedSorted = new EnumMap<>(QuestSort.class);
+            sorted.forEach((sort, ordinals) -> {
+                if (sortKeyEquals(sort, previous, entry))
+                    updatedSorted.put(sort, ordinals);
+                else
+                    updatedSorted.put(sort, insert(sort, updatedEntries, without(ordinals, ordinal), ordinal));
+            });
+            return new Snapshot(catalogue, updatedEntries, updatedTags, updatedCategories, updatedSorted);
+        }
+
+        /**
+         * Utility function to compare two quests in a sort order, falling back to catalogue order.
+         * @param sort The sort order
+         * @param entries The quest entries by ordinal
+         * @param a The first ordinal
+         * @param b The second ordinal
+         * @return The comparison result
+         */
+        private static int compare(QuestSort sort, Entry[] entries, int a, int b) {
+            Entry first = entries[a];
+            Entry second = entries[b];
+            int result = switch (sort) {
+                case CATALOGUE -> 0;
+                case NAME -> first.name().compareTo(second.name());
+                case DIFFICULTY -> first.difficulty().compareTo(second.difficulty());
+                case AUTHOR -> first.author().compareTo(second.author());
+                case RECENT -> Long.compare(second.updated(), first.updated());
+            };
+            return result != 0 ? result : Integer.compare(a, b);
+        }
+
+        /**
+         * Utility function to check whether an edit left a quest's key for a sort order unchanged.
+         * @param sort The sort order
+         * @param previous The quest's previous entry
+         * @param entry The quest's new entry
+         * @return Whether the sort key is unchanged
+         */
+        private static boolean sortKeyEquals(QuestSort sort, Entry previous, Entry entry) {
+            return switch (sort) {
+                case CATALOGUE -> true;
+                case NAME -> previous.name().equals(entry.name());
+                case DIFFICULTY -> previous.difficulty().equals(entry.difficulty());
+                case AUTHOR -> previous.author().equals(entry.author());
+                case RECENT -> previous.updated() == entry.updated();
+            };
+        }
+
+        /**
+         * Utility function to insert an ordinal into a sorted array of ordinals, by binary search.
+         * @param sort The sort order of the array
+         * @param entries The quest entries by ordinal
+         * @param ordinals The sorted ordinals, without the ordinal
+         * @param ordinal The ordinal to insert
+         * @return A new sorted array with the ordinal inserted
+         */
+        private static int[] insert(QuestSort sort, Entry[] entries, int[] ordinals, int ordinal) {
+            int low = 0;
+            int high = ordinals.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (compare(sort, entries, ordinals[middle], ordinal) < 0)
+                    low = middle + 1;
+                else
+                    high = middle;
+            }
+
+            int[] inserted = new int[ordinals.length + 1];
+            System.arraycopy(ordinals, 0, inserted, 0, low);
+            inserted[low] = ordinal;
+            System.arraycopy(ordinals, low, inserted, low + 1, ordinals.length - low);
+            return inserted;
+        }
+
+        /**
+         * Utility function to remove an ordinal from an array of ordinals.
+         * @param ordinals The ordinals
+         * @param ordinal The ordinal to remove
+         * @return A new array without the ordinal
+         */
+        private static int[] without(int[] ordinals, int ordinal) {
+            return Arrays.stream(ordinals).filter(existing -> existing != ordinal).toArray();
+        }
+
+        /**
+         * Utility function to set or clear a bit in a copy of a keyed bitset, dropping the key once its bitset is empty.
+         * @param bitsets The bitsets by key - the map itself is modified, but not the bitsets in it
+         * @param key The key
+         * @param ordinal The bit to change
+         * @param value Whether to set or clear the bit
+         */
+        private static void setBit(Map<String, BitSet> bitsets, String key, int ordinal, boolean value) {
+            BitSet existing = bitsets.get(key);
+            BitSet updated = existing == null ? new BitSet() : (BitSet) existing.clone();
+            updated.set(ordinal, value);
+            if (updated.isEmpty())
+                bitsets.remove(key);
+            else
+                bitsets.put(key, updated);
+        }
+
+        /**
+         * Utility function to remove a bit from every keyed bitset, shifting the bits after it down by one.
+         * @param bitsets The bitsets by key
+         * @param ordinal The bit to remove
+         * @return New bitsets by key, without any left empty
+         */
+        private static Map<String, BitSet> removeBit(Map<String, BitSet> bitsets, int ordinal) {
+            Map<String, BitSet> updated = new HashMap<>(bitsets.size());
+            bitsets.forEach((key, bits) -> {
+                BitSet shifted = bits.get(0, ordinal);
+                for (int bit = bits.nextSetBit(ordinal + 1); bit >= 0; bit = bits.nextSetBit(bit + 1))
+                    shifted.set(bit - 1);
+                if (!shifted.isEmpty())
+                    updated.put(key, shifted);
+            });
+            return updated;
+        }
+
+    }
+
+}
@@ -0,0 +1,112 @@
+package me.plobnob.quest.provider;
+
+import org.bukkit.plugin.Plugin;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A watcher for external changes to the quest storage, such as files pushed by a sync job.
+ * Events are debounced so a burst of file changes triggers a single reload, which runs on the watcher thread.
+ */
+class QuestFileWatcher {
+
+    // Member variables
+    private final Plugin plugin;
+    private final QuestStorage storage;
+    private final long debounce;
+    private final Runnable onChange;
+    private WatchService watchService;
+    private Thread thread;
+
+    /**
+     * Default constructor.
+     * @param plugin The plugin instance
+     * @param storage The storage to watch
+     * @param debounce How long (in milliseconds) to wait for further changes before reloading
+     * @param onChange The reload to run on the watcher thread once changes settle
+     */
+    QuestFileWatcher(Plugin plugin, QuestStorage storage, long debounce, Runnable onChange) {
+        this.plugin = plugin;
+        this.storage = storage;
+        this.debounce = debounce;
+        this.onChange = onChange;
+    }
+
+    /**
+     * Function to start watching the storage directory.
+     * @throws IOException If the directory could not be watched
+     */
+    void start() throws IOException {
+        watchService = FileSystems.getDefault().newWatchService();
+        storage.watchDirectory().register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE);
+
+        thread = new Thread(this::run, "SimpleQuestBook-Watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Function to stop watching (in the event of a disable).
+     */
+    void close() {
+        if (watchService == null)
+            return;
+        try {
+            watchService.close();
+        } catch (IOException ignored) {
+            // Closing only fails if the watch service is already broken
+        }
+        thread.interrupt();
+    }
+
+    /**
+     * Utility function to wait for changes and reload once each burst of changes settles.
+     */
+    private void run() {
+        try {
+            while (true) {
+                boolean changed = drain(watchService.take());
+                WatchKey next;
+                while ((next = watchService.poll(debounce, TimeUnit.MILLISECONDS)) != null)
+                    changed |= drain(next);
+
+                if (!changed)
+                    continue;
+                try {
+                    onChange.run();
+                } catch (Exception ex) {
+                    plugin.getComponentLogger().error("Failed to reload changed quests!", ex);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ignored) {
+            // Stopped
+        }
+    }
+
+    /**
+     * Utility function to consume the events of a watch key.
+     * @param key The signalled watch key
+     * @return Whether any event concerned a storage file
+     */
+    private boolean drain(WatchKey key) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || (event.context() instanceof Path path && storage.isStorageFile(path)))
+                changed = true;
+        }
+        key.reset();
+        return changed;
+    }
+
+}
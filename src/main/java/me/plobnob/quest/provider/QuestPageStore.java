@@ -0,0 +1,157 @@
+package me.plobnob.quest.provider;
+
+import me.plobnob.quest.util.PageTemplate;
+import org.bukkit.plugin.Plugin;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A read-only, memory-mapped store for quest page text.
+ * Pages are written once into a page blob and each quest keeps only a reference into it, so page text stays off
+ * the heap until a book is opened. A small bounded cache holds the compiled pages of recently opened books.
+ */
+class QuestPageStore {
+
+    // File naming constants - each store gets a fresh blob, as a mapped file cannot be replaced on every platform
+    private static final String BLOB_PREFIX = "pages-";
+    private static final String BLOB_SUFFIX = ".bin";
+
+    // Member variables
+    private final Plugin plugin;
+    private final Map<PageRef, List<PageTemplate>> compiledCache;
+    private MappedByteBuffer blob;
+
+    /**
+     * Default constructor.
+     * @param plugin The plugin instance
+     * @param cacheSize The number of recently opened books to keep compiled
+     */
+    QuestPageStore(Plugin plugin, int cacheSize) {
+        this.plugin = plugin;
+        this.compiledCache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<PageRef, List<PageTemplate>> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    /**
+     * Function to move the pages of every given quest into a newly written page blob - called once per store.
+     * Quests keep their pages on the heap if the blob cannot be written.
+     * @param quests The quests to move the pages of
+     */
+    void attach(List<Quest> quests) {
+        deleteStaleBlobs();
+
+        Path blobPath;
+        int[] positions = new int[quests.size()];
+        try {
+            blobPath = Files.createTempFile(plugin.getDataFolder().toPath(), BLOB_PREFIX, BLOB_SUFFIX);
+            blobPath.toFile().deleteOnExit();
+
+            long position = 0;
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(blobPath)))) {
+                for (int i = 0; i < quests.size(); i++) {
+                    positions[i] = (int) position;
+                    for (String page : quests.get(i).getPages()) {
+                        byte[] bytes = page.getBytes(StandardCharsets.UTF_8);
+                        position += Integer.BYTES + bytes.length;
+                        // Checked per page, as any page (including the last) may push the blob past the mapped limit
+                        if (position > Integer.MAX_VALUE)
+                            throw new IOException("Quest pages exceed the maximum mapped size");
+                        out.writeInt(bytes.length);
+                        out.write(bytes);
+                    }
+                }
+            }
+
+            try (FileChannel channel = FileChannel.open(blobPath, StandardOpenOption.READ)) {
+                blob = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+        } catch (IOException | RuntimeException ex) {
+            plugin.getComponentLogger().warn("Failed to write the quest page store - pages will be kept in memory!", ex);
+            return;
+        }
+
+        compiledCache.clear();
+        for (int i = 0; i < quests.size(); i++) {
+            Quest quest = quests.get(i);
+            quest.movePages(new PageRef(this, positions[i], quest.getPages().size()));
+        }
+    }
+
+    /**
+     * Function to read the pages of a quest from the page blob.
+     * @param ref The quest's page reference
+     * @return The decoded pages
+     */
+    List<String> read(PageRef ref) {
+        List<String> pages = new ArrayList<>(ref.count());
+        int position = ref.position();
+        for (int i = 0; i < ref.count(); i++) {
+            int length = blob.getInt(position);
+            byte[] bytes = new byte[length];
+            blob.get(position + Integer.BYTES, bytes);
+            pages.add(new String(bytes, StandardCharsets.UTF_8));
+            position += Integer.BYTES + length;
+        }
+        return pages;
+    }
+
+    /**
+     * Function to get the compiled pages of a quest, compiling and caching them if they are not recently used.
+     * @param ref The quest's page reference
+     * @return The compiled pages
+     */
+    List<PageTemplate> compiled(PageRef ref) {
+        List<PageTemplate> compiled = compiledCache.get(ref);
+        if (compiled == null) {
+            compiled = read(ref).stream().map(PageTemplate::compile).toList();
+            compiledCache.put(ref, compiled);
+        }
+        return compiled;
+    }
+
+    /**
+     * Utility function to remove page blobs left behind by previous runs.
+     * Blobs still mapped by a previous instance may fail to delete and are retried on the next start.
+     */
+    private void deleteStaleBlobs() {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(plugin.getDataFolder().toPath(), BLOB_PREFIX + "*" + BLOB_SUFFIX)) {
+            for (Path path : stream) {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException ignored) {
+                    // Still mapped - removed on a later start
+                }
+            }
+        } catch (IOException ex) {
+            plugin.getComponentLogger().warn("Failed to clean up old quest page stores!", ex);
+        }
+    }
+
+    /**
+     * A reference to a quest's pages within the page blob.
+     * @param store The owning page store
+     * @param position The byte position of the first page
+     * @param count The number of pages
+     */
+    record PageRef(QuestPageStore store, int position, int count) {
+    }
+
+}
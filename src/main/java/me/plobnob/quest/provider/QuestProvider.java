@@ -1,44 +1,181 @@
 package me.plobnob.quest.provider;
 
-import lombok.Getter;
-import org.bukkit.configuration.file.FileConfiguration;
-import org.bukkit.configuration.file.YamlConfiguration;
+import me.plobnob.quest.metrics.QuestMetrics;
+import org.bukkit.Bukkit;
 import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 /**
- * A class to manage and cache the contents of quests available for players
+ * A class to manage and cache the contents of quests available for players.
+ * Saves are coalesced and written to disk by a background writer, rewriting only what the storage layout needs.
+ * A binary snapshot of the catalogue is kept alongside the yaml storage and preferred on startup when it is current.
+ * Once loaded, page text is moved into a memory-mapped page store.
+ * External changes to the yaml storage are watched for and applied incrementally, without re-saving them.
+ * The catalogue is published as immutable, versioned {@link QuestCatalogue} snapshots - each change builds the next
+ * version on the server thread and swaps it in, so readers on any thread see a consistent quest list, name index and
+ * version without locking.
  */
 public class QuestProvider {
 
     // Member variables - not injected with lombok due to instantiation order requirements
-    @Getter
-    public List<Quest> quests;
-    private FileConfiguration questsConfig;
+    private volatile QuestCatalogue catalogue = QuestCatalogue.EMPTY;
+    private final List<CatalogueListener> listeners = new ArrayList<>();
     private final Plugin plugin;
-    private final File questsFile;
+    private final QuestMetrics metrics;
+    private final QuestStorage storage;
+    private final QuestSnapshotFile snapshot;
+    private final QuestPageStore pageStore;
+    private final QuestFileWatcher watcher;
+    private volatile long knownFingerprint;
+
+    // Write-behind state - a flush is scheduled on the first edit and picks up every edit made before it runs
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "SimpleQuestBook-Writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final long saveDelay;
+    private final Set<Quest> changedQuests = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Set<String> removedQuests = new HashSet<>();
+    private boolean reordered;
+    private boolean snapshotStale;
+    private BukkitTask flushTask;
 
     /**
      * Default constructor.
      * @param plugin The plugin instance
+     * @param metrics The plugin metrics
      */
-    public QuestProvider(Plugin plugin) {
+    public QuestProvider(Plugin plugin, QuestMetrics metrics) {
         this.plugin = plugin;
-        this.questsFile = new File(plugin.getDataFolder(), "quests.yml");
-        loadConfig();
+        this.metrics = metrics;
+        this.saveDelay = Math.max(1, plugin.getConfig().getLong("storage.save-delay", 20));
+
+        File questsFile = new File(plugin.getDataFolder(), "quests.yml");
+        if ("sharded".equalsIgnoreCase(plugin.getConfig().getString("storage.mode", "single")))
+            this.storage = new ShardedQuestStorage(plugin, new File(plugin.getDataFolder(), "quests"), questsFile);
+        else
+            this.storage = new SingleFileQuestStorage(questsFile);
+        this.snapshot = plugin.getConfig().getBoolean("storage.snapshot", true)
+                ? new QuestSnapshotFile(new File(plugin.getDataFolder(), "quests.bin"))
+                : null;
+        this.pageStore = plugin.getConfig().getBoolean("storage.mapped-pages", true)
+                ? new QuestPageStore(plugin, Math.max(1, plugin.getConfig().getInt("storage.page-cache", 64)))
+                : null;
+
+        catalogue = indexQuests(loadConfig());
+        if (pageStore != null)
+            pageStore.attach(catalogue.getQuests());
+        if (!changedQuests.isEmpty())
+            saveConfig();
+
+        this.watcher = plugin.getConfig().getBoolean("storage.watch", true)
+                ? new QuestFileWatcher(plugin, storage, Math.max(50, plugin.getConfig().getLong("storage.watch-delay", 500)), this::reloadExternalChanges)
+                : null;
+        if (watcher != null) {
+            try {
+                watcher.start();
+            } catch (IOException ex) {
+                plugin.getComponentLogger().warn("Failed to watch the quests config for changes - edits made outside the game will need a reload!", ex);
+            }
+        }
+    }
+
+    /**
+     * Function to add a listener for catalogue changes - it is immediately told about every registered quest.
+     * @param listener The listener to add
+     */
+    public void addListener(CatalogueListener listener) {
+        listeners.add(listener);
+        for (Quest quest : catalogue.getQuests())
+            listener.questRegistered(quest);
+    }
+
+    /**
+     * Function to get the current catalogue snapshot - safe to call from any thread.
+     * Read the snapshot once and use it throughout, when its quest list, names and version must agree.
+     * @return The current catalogue
+     */
+    public QuestCatalogue getCatalogue() {
+        return catalogue;
+    }
+
+    /**
+     * Function to get every registered quest, in catalogue order.
+     * @return An immutable snapshot of the registered quests
+     */
+    public List<Quest> getQuests() {
+        return catalogue.getQuests();
+    }
+
+    /**
+     * Function to get a quest by its ordinal - its position in catalogue order.
+     * Ordinals are only stable for a single catalogue version.
+     * @param ordinal The quest ordinal
+     * @return The quest
+     */
+    public Quest getQuest(int ordinal) {
+        return catalogue.getQuest(ordinal);
+    }
+
+    /**
+     * Function to get the catalogue version, which changes whenever quests are registered, unregistered or renamed.
+     * @return The catalogue version
+     */
+    public long getCatalogueVersion() {
+        return catalogue.getVersion();
+    }
+
+    /**
+     * Function to find a quest by name, ignoring case.
+     * @param name The quest name
+     * @return The quest, or null if no quest has the given name
+     */
+    public Quest getQuest(String name) {
+        return catalogue.getQuest(name);
+    }
+
+    /**
+     * Function to check whether a quest exists with a given name, ignoring case.
+     * @param name The quest name
+     * @return Whether the name is taken
+     */
+    public boolean hasQuest(String name) {
+        return catalogue.hasQuest(name);
     }
 
     /**
      * Function to register a given quest.
      * @param quest The quest to register
+     * @return Whether the quest was registered - false if a quest with the same name (ignoring case) exists
      */
-    public void registerQuest(Quest quest) {
-        quests.add(quest);
+    public boolean registerQuest(Quest quest) {
+        QuestCatalogue.Builder builder = catalogue.toBuilder();
+        if (!builder.add(quest))
+            return false;
+
+        quest.setUpdated(System.currentTimeMillis());
+        catalogue = builder.build();
+        changedQuests.add(quest);
+        reordered = true;
         saveConfig();
+        listeners.forEach(listener -> listener.questRegistered(quest));
+        return true;
     }
 
     /**
@@ -46,48 +183,363 @@ public class QuestProvider {
      * @param quest The quest to unregister
      */
     public void unregisterQuest(Quest quest) {
-        quests.remove(quest);
+        QuestCatalogue.Builder builder = catalogue.toBuilder();
+        if (!builder.remove(quest))
+            return;
+
+        catalogue = builder.build();
+        changedQuests.remove(quest);
+        removedQuests.add(quest.getName());
+        reordered = true;
         saveConfig();
+        listeners.forEach(listener -> listener.questUnregistered(quest));
     }
 
     /**
-     * Function to save quests - primarily after an edit to the class list has been made.
+     * Function to rename a given quest, keeping the name index consistent.
+     * @param quest The quest to rename
+     * @param name The new quest name
+     * @return Whether the quest was renamed - false if another quest already has the name (ignoring case)
      */
-    public void saveQuests() {
+    public boolean renameQuest(Quest quest, String name) {
+        Quest existing = catalogue.getQuest(name);
+        if (existing != null && existing != quest)
+            return false;
+
+        String oldName = quest.getName();
+        QuestCatalogue.Builder builder = catalogue.toBuilder();
+        quest.setName(name);
+        builder.rename(quest, oldName);
+        quest.setUpdated(System.currentTimeMillis());
+        catalogue = builder.build();
+        removedQuests.add(oldName);
+        changedQuests.add(quest);
+        reordered = true;
         saveConfig();
+        listeners.forEach(listener -> listener.questRenamed(quest, oldName));
+        return true;
+    }
+
+    /**
+     * Function to save a quest - primarily after an edit to one of its fields has been made.
+     * @param quest The edited quest
+     */
+    public void saveQuest(Quest quest) {
+        quest.setUpdated(System.currentTimeMillis());
+        changedQuests.add(quest);
+        saveConfig();
+        listeners.forEach(listener -> listener.questChanged(quest));
+    }
+
+    /**
+     * Function to flush any pending save synchronously and stop the background writer (in the event of a disable).
+     */
+    public void close() {
+        if (watcher != null)
+            watcher.close();
+
+        boolean pending = flushTask != null;
+        if (pending) {
+            flushTask.cancel();
+            flushTask = null;
+        }
+
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(10, TimeUnit.SECONDS))
+                plugin.getComponentLogger().warn("Timed out waiting for queued quest saves to finish!");
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (pending)
+            write(prepareSave());
+        if (snapshotStale)
+            writeSnapshot(snapshot.encode(catalogue.getQuests(), storage.fingerprint()));
     }
 
     /**
      * Utility function to load the config.
+     * @return The loaded quests, in catalogue order
      */
-    @SuppressWarnings("unchecked")
-    private void loadConfig() {
-        if (!questsFile.exists()) {
-            if (!questsFile.getParentFile().mkdirs())
+    private List<Quest> loadConfig() {
+        if (!plugin.getDataFolder().exists()) {
+            if (!plugin.getDataFolder().mkdirs())
                 plugin.getComponentLogger().warn("Failed to generate directory path for the quests.yml file - this could be problematic!");
         }
-        questsConfig = YamlConfiguration.loadConfiguration(questsFile);
 
+        knownFingerprint = storage.fingerprint();
+        if (snapshot != null && snapshot.isCurrent(knownFingerprint)) {
+            try {
+                return new ArrayList<>(snapshot.read());
+            } catch (IOException ex) {
+                plugin.getComponentLogger().warn("Failed to read the quests snapshot - falling back to the quests config!", ex);
+            }
+        }
+
+        List<Quest> loaded;
+        try {
+            loaded = new ArrayList<>(storage.load());
+        } catch (Exception ex) {
+            plugin.getComponentLogger().error("Failed to load quests config!", ex);
+            return new ArrayList<>();
+        }
+
+        // Refresh the snapshot so the next startup can skip the yaml parse - loading may have migrated the storage
+        knownFingerprint = storage.fingerprint();
+        if (snapshot != null) {
+            byte[] encoded = snapshot.encode(loaded, knownFingerprint);
+            writer.execute(() -> writeSnapshot(encoded));
+        }
+        return loaded;
+    }
+
+    /**
+     * Utility function to re-read the storage after an external change (called on the watcher thread).
+     * Changes made by our own writes are skipped, as the storage then has the fingerprint recorded after the write.
+     * Any other fingerprint counts as a change - sync tools often keep the source timestamp, which may be older.
+     */
+    private void reloadExternalChanges() {
+        long fingerprint = storage.fingerprint();
+        if (fingerprint == knownFingerprint)
+            return;
+
+        List<Quest> loaded;
         try {
-            quests = (List<Quest>) questsConfig.getList("quests");
-            if (quests == null)
-                quests = new ArrayList<>();
+            loaded = storage.load();
         } catch (Exception ex) {
-            plugin.getComponentLogger().error("Failed to load quests config!");
+            plugin.getComponentLogger().error("Failed to reload the changed quests config!", ex);
+            return;
+        }
+        knownFingerprint = fingerprint;
+
+        if (plugin.isEnabled())
+            Bukkit.getScheduler().runTask(plugin, () -> applyReload(loaded));
+    }
+
+    /**
+     * Function to commit imported quests to the catalogue in a single swap, followed by a single save.
+     * Imported quests replace the content of registered quests with the same name (ignoring case) in place.
+     * @param imported The imported quests, with unique names
+     * @param replace Whether quests missing from the import are unregistered - otherwise they are kept
+     * @return The changes made to the catalogue
+     */
+    public CatalogueChanges importQuests(List<Quest> imported, boolean replace) {
+        Map<String, Quest> incoming = new LinkedHashMap<>();
+        if (!replace) {
+            for (Quest quest : catalogue.getQuests())
+                incoming.put(QuestCatalogue.normalise(quest.getName()), quest);
+        }
+        for (Quest quest : imported)
+            incoming.put(QuestCatalogue.normalise(quest.getName()), quest);
+        return applyCatalogue(incoming, true);
+    }
+
+    /**
+     * Utility function to apply reloaded quests, diffing them against the catalogue by name.
+     * Reloaded content is already on disk, so nothing is saved. In-game changes still waiting for the save delay are
+     * not on disk yet, so they win over the reloaded content and are written by the pending save.
+     * @param loaded The reloaded quests, in catalogue order
+     */
+    private void applyReload(List<Quest> loaded) {
+        Map<String, Quest> incoming = new LinkedHashMap<>();
+        for (Quest quest : loaded) {
+            if (quest.getName() == null || incoming.putIfAbsent(QuestCatalogue.normalise(quest.getName()), quest) != null)
+                plugin.getComponentLogger().warn("Skipping reloaded quest with a missing or duplicate name: {}", quest.getName());
+        }
+
+        // Pending deletions (and the old names of pending renames) stay deleted, pending creations and edits are kept
+        Set<String> conflicts = new TreeSet<>();
+        for (String name : removedQuests) {
+            if (incoming.remove(QuestCatalogue.normalise(name)) != null)
+                conflicts.add(name);
+        }
+        for (Quest quest : changedQuests) {
+            Quest reloaded = incoming.put(QuestCatalogue.normalise(quest.getName()), quest);
+            if (reloaded == null || !reloaded.hasSameContent(quest))
+                conflicts.add(quest.getName());
         }
+        if (!conflicts.isEmpty())
+            plugin.getComponentLogger().warn("Keeping unsaved in-game changes over the reloaded quests config for: {}", String.join(", ", conflicts));
+
+        CatalogueChanges changes = applyCatalogue(incoming, false);
+        if (changes.isEmpty())
+            return;
+        plugin.getComponentLogger().info("Reloaded quests config - {} added, {} removed, {} changed",
+                changes.added(), changes.removed(), changes.changed());
+    }
+
+    /**
+     * Utility function to make the catalogue match a new set of quests, diffing them against the catalogue by name.
+     * Changed quests are updated in place so open books and edit sessions stay bound to them, and only the listeners
+     * for added, removed and changed quests are notified.
+     * @param incoming The new quests in catalogue order, keyed by normalised name
+     * @param save Whether to save the changes - otherwise only the snapshot is refreshed
+     * @return The changes made to the catalogue
+     */
+    private CatalogueChanges applyCatalogue(Map<String, Quest> incoming, boolean save) {
+        List<Quest> current = catalogue.getQuests();
+        List<Quest> removed = current.stream().filter(quest -> !incoming.containsKey(QuestCatalogue.normalise(quest.getName()))).toList();
+        List<Quest> added = new ArrayList<>();
+        List<Quest> changed = new ArrayList<>();
+        Map<Quest, String> renamed = new IdentityHashMap<>();
+        List<Quest> updated = new ArrayList<>(incoming.size());
+        QuestCatalogue.Builder builder = catalogue.toBuilder();
+
+        for (Quest quest : removed) {
+            builder.remove(quest);
+            changedQuests.remove(quest);
+        }
+        for (Map.Entry<String, Quest> entry : incoming.entrySet()) {
+            Quest existing = builder.getQuest(entry.getKey());
+            if (existing == null) {
+                builder.add(entry.getValue());
+                added.add(entry.getValue());
+                updated.add(entry.getValue());
+                continue;
+            }
+
+            updated.add(existing);
+            if (existing == entry.getValue() || existing.hasSameContent(entry.getValue()))
+                continue;
+            String oldName = existing.getName();
+            existing.copyFrom(entry.getValue());
+            if (oldName.equals(existing.getName()))
+                changed.add(existing);
+            else
+                renamed.put(existing, oldName);
+        }
+
+        boolean reorderedQuests = updated.size() != current.size();
+        for (int i = 0; !reorderedQuests && i < updated.size(); i++)
+            reorderedQuests = updated.get(i) != current.get(i);
+        if (!reorderedQuests && changed.isEmpty() && renamed.isEmpty())
+            return new CatalogueChanges(0, 0, 0);
+
+        // Renames here only change case - the index keys stay the same, but the version still moves on
+        if (reorderedQuests)
+            builder.reorder(updated);
+        renamed.forEach(builder::rename);
+        catalogue = builder.build();
+        if (save) {
+            removed.forEach(quest -> removedQuests.add(quest.getName()));
+            removedQuests.addAll(renamed.values());
+            changedQuests.addAll(added);
+            changedQuests.addAll(changed);
+            changedQuests.addAll(renamed.keySet());
+            reordered |= reorderedQuests || !renamed.isEmpty();
+            saveConfig();
+        } else if (snapshot != null) {
+            byte[] encoded = snapshot.encode(catalogue.getQuests(), knownFingerprint);
+            writer.execute(() -> writeSnapshot(encoded));
+        }
+
+        removed.forEach(quest -> listeners.forEach(listener -> listener.questUnregistered(quest)));
+        added.forEach(quest -> listeners.forEach(listener -> listener.questRegistered(quest)));
+        renamed.forEach((quest, oldName) -> listeners.forEach(listener -> listener.questRenamed(quest, oldName)));
+        changed.forEach(quest -> listeners.forEach(listener -> listener.questChanged(quest)));
+
+        return new CatalogueChanges(added.size(), removed.size(), changed.size() + renamed.size());
+    }
+
+    /**
+     * Utility function to build the first catalogue after loading.
+     * Any quest whose name is missing or already taken (ignoring case) is renamed to a free name and marked for saving,
+     * rather than dropped - older versions allowed names differing only in case, and the next save would lose it.
+     * @param loaded The loaded quests
+     * @return The catalogue
+     */
+    private QuestCatalogue indexQuests(List<Quest> loaded) {
+        QuestCatalogue.resolveNames(loaded).forEach((quest, oldName) -> {
+            changedQuests.add(quest);
+            reordered = true;
+            plugin.getComponentLogger().warn("Renamed quest {} to {} as its name is missing or already taken (ignoring case)!", oldName, quest.getName());
+        });
+
+        QuestCatalogue.Builder builder = QuestCatalogue.EMPTY.toBuilder();
+        loaded.forEach(builder::add);
+        return builder.build();
     }
 
     /**
      * Utility function to save the config.
+     * Marks the quests as dirty - the write happens after the save delay, coalescing any further edits.
      */
     private void saveConfig() {
-        questsConfig.set("quests", quests);
+        snapshotStale = snapshot != null;
+        if (flushTask != null)
+            return;
+        flushTask = Bukkit.getScheduler().runTaskLater(plugin, this::flushConfig, saveDelay);
+    }
+
+    /**
+     * Utility function to serialize the changes on the server thread and hand the result to the background writer.
+     */
+    private void flushConfig() {
+        flushTask = null;
+        long start = metrics.start();
+        QuestStorage.StorageWrite prepared = prepareSave();
+        long prepareNanos = metrics.elapsed(start);
+        writer.execute(() -> {
+            long writeStart = metrics.start();
+            write(prepared);
+            metrics.recordNanos(QuestMetrics.Operation.SAVE, prepareNanos + metrics.elapsed(writeStart));
+        });
+    }
+
+    /**
+     * Utility function to serialize every change since the last save and reset the change tracking.
+     * @return The prepared write
+     */
+    private QuestStorage.StorageWrite prepareSave() {
+        QuestStorage.StorageWrite write = storage.prepareSave(catalogue.getQuests(), changedQuests, removedQuests, reordered);
+        changedQuests.clear();
+        removedQuests.clear();
+        reordered = false;
+        return write;
+    }
 
+    /**
+     * Utility function to run a prepared write, logging any failure.
+     * @param write The prepared write
+     */
+    private void write(QuestStorage.StorageWrite write) {
+        try {
+            write.write();
+            knownFingerprint = storage.fingerprint();
+        } catch (IOException ex) {
+            plugin.getComponentLogger().error("Failed to save quests config!", ex);
+        }
+    }
+
+    /**
+     * Utility function to write an encoded snapshot, logging any failure.
+     * @param encoded The encoded snapshot
+     */
+    private void writeSnapshot(byte[] encoded) {
         try {
-            questsConfig.save(questsFile);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+            snapshot.write(encoded);
+        } catch (IOException ex) {
+            plugin.getComponentLogger().error("Failed to save quests snapshot!", ex);
         }
     }
 
+    /**
+     * The changes made to the catalogue by a reload or import.
+     * @param added The number of quests registered
+     * @param removed The number of quests unregistered
+     * @param changed The number of registered quests whose content changed
+     */
+    public record CatalogueChanges(int added, int removed, int changed) {
+
+        /**
+         * Function to check whether the catalogue was left untouched.
+         * @return Whether nothing changed
+         */
+        public boolean isEmpty() {
+            return added == 0 && removed == 0 && changed == 0;
+        }
+
+    }
+
 }
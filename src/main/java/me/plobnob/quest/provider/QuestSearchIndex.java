@@ -0,0 +1,168 @@
+package me.plobnob.quest.provider;
+
+import net.kyori.adventure.text.minimessage.MiniMessage;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * An in-memory inverted index over quest text - the name, display name, author, description and pages.
+ * Each term maps to the quests containing it and how often it appears in each, so a search only visits the quests
+ * holding its rarest term. Kept in sync with the quest provider through catalogue events, re-indexing only the quest
+ * which changed. Only used on the server thread.
+ */
+public class QuestSearchIndex implements CatalogueListener {
+
+    // Tokenisation - tags and placeholders are removed before splitting on anything other than letters and digits
+    private static final Pattern PLACEHOLDER = Pattern.compile("%[^%\\s]+%");
+    private static final Pattern SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    // Member variables - quests are keyed by identity, as their equality changes with every edit
+    private final Map<String, Map<Quest, Integer>> postings = new HashMap<>();
+    private final Map<Quest, Set<String>> termsByQuest = new IdentityHashMap<>();
+
+    @Override
+    public void questRegistered(Quest quest) {
+        index(quest);
+    }
+
+    @Override
+    public void questUnregistered(Quest quest) {
+        unindex(quest);
+    }
+
+    @Override
+    public void questRenamed(Quest quest, String oldName) {
+        unindex(quest);
+        index(quest);
+    }
+
+    @Override
+    public void questChanged(Quest quest) {
+        unindex(quest);
+        index(quest);
+    }
+
+    /**
+     * Function to find the quests containing every term of a query, ranked by how often the terms appear in each.
+     * Ties are ordered by quest name.
+     * @param query The search query
+     * @param filter A filter the matching quests must pass, such as the searcher's view permissions
+     * @param limit The maximum number of quests to return
+     * @return The matching quests, best match first
+     */
+    public List<Quest> search(String query, Predicate<Quest> filter, int limit) {
+        Set<String> terms = new LinkedHashSet<>(tokenise(query));
+        if (terms.isEmpty())
+            return List.of();
+
+        List<Map<Quest, Integer>> lists = new ArrayList<>(terms.size());
+        for (String term : terms) {
+            Map<Quest, Integer> list = postings.get(term);
+            if (list == null)
+                return List.of();
+            lists.add(list);
+        }
+        lists.sort(Comparator.comparingInt(Map::size));
+
+        List<Match> matches = new ArrayList<>();
+        candidates:
+        for (Map.Entry<Quest, Integer> candidate : lists.getFirst().entrySet()) {
+            int score = candidate.getValue();
+            for (int i = 1; i < lists.size(); i++) {
+                Integer frequency = lists.get(i).get(candidate.getKey());
+                if (frequency == null)
+                    continue candidates;
+                score += frequency;
+            }
+            if (filter.test(candidate.getKey()))
+                matches.add(new Match(candidate.getKey(), score));
+        }
+
+        return matches.stream()
+                .sorted(Comparator.comparingInt(Match::score).reversed()
+                        .thenComparing(match -> match.quest().getName(), String.CASE_INSENSITIVE_ORDER))
+                .limit(limit)
+                .map(Match::quest)
+                .toList();
+    }
+
+    /**
+     * Function to split text into search terms, ignoring MiniMessage tags, placeholders and case.
+     * @param text The text to split
+     * @return The terms, in order and including repeats
+     */
+    public static List<String> tokenise(String text) {
+        if (text == null || text.isEmpty())
+            return List.of();
+
+        String plain = PLACEHOLDER.matcher(MiniMessage.miniMessage().stripTags(text)).replaceAll(" ");
+        List<String> terms = new ArrayList<>();
+        for (String term : SEPARATOR.split(plain.toLowerCase(Locale.ROOT))) {
+            if (!term.isEmpty())
+                terms.add(term);
+        }
+        return terms;
+    }
+
+    /**
+     * Utility function to add a quest's terms to the index.
+     * @param quest The quest to index
+     */
+    private void index(Quest quest) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        count(frequencies, quest.getName());
+        count(frequencies, quest.getDisplayName());
+        count(frequencies, quest.getAuthor());
+        count(frequencies, quest.getDescription());
+        for (String page : quest.getPages())
+            count(frequencies, page);
+
+        frequencies.forEach((term, frequency) ->
+                postings.computeIfAbsent(term, ignored -> new IdentityHashMap<>()).put(quest, frequency));
+        termsByQuest.put(quest, frequencies.keySet());
+    }
+
+    /**
+     * Utility function to remove a quest's terms from the index.
+     * @param quest The quest to remove
+     */
+    private void unindex(Quest quest) {
+        Set<String> terms = termsByQuest.remove(quest);
+        if (terms == null)
+            return;
+        for (String term : terms) {
+            Map<Quest, Integer> list = postings.get(term);
+            if (list != null && list.remove(quest) != null && list.isEmpty())
+                postings.remove(term);
+        }
+    }
+
+    /**
+     * Utility function to count the terms in a piece of quest text.
+     * @param frequencies The term frequencies to add to
+     * @param text The text, or null
+     */
+    private static void count(Map<String, Integer> frequencies, String text) {
+        for (String term : tokenise(text))
+            frequencies.merge(term, 1, Integer::sum);
+    }
+
+    /**
+     * A quest matching a search.
+     * @param quest The quest
+     * @param score The combined frequency of the search terms in the quest
+     */
+    private record Match(Quest quest, int score) {
+    }
+
+}
@@ -0,0 +1,187 @@
+package me.plobnob.quest.provider;
+
+import org.bukkit.inventory.ItemStack;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A compact binary snapshot of every quest, written alongside the yaml storage for fast startup.
+ * Itemstacks are stored using Paper's byte serialization and strings as length-prefixed UTF-8.
+ * The yaml storage remains the editable source - the snapshot records the fingerprint of the storage it was written
+ * from, and is only read while the storage still has exactly that fingerprint.
+ */
+class QuestSnapshotFile {
+
+    // Format constants - bump the version whenever the layout changes
+    private static final int MAGIC = 0x53514231;
+    private static final int VERSION = 3;
+    private static final int HEADER_SIZE = 16;
+
+    // Member variables
+    private final File snapshotFile;
+
+    /**
+     * Default constructor.
+     * @param snapshotFile The snapshot file
+     */
+    QuestSnapshotFile(File snapshotFile) {
+        this.snapshotFile = snapshotFile;
+    }
+
+    /**
+     * Function to check whether the snapshot was written from the yaml storage as it is now.
+     * @param storageFingerprint The current fingerprint of the yaml storage
+     * @return Whether the snapshot should be preferred
+     */
+    boolean isCurrent(long storageFingerprint) {
+        if (storageFingerprint == 0 || !snapshotFile.isFile())
+            return false;
+        try (DataInputStream in = new DataInputStream(new FileInputStream(snapshotFile))) {
+            return in.readInt() == MAGIC && in.readInt() == VERSION && in.readLong() == storageFingerprint;
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Function to read every quest from the snapshot.
+     * @return The quests, in catalogue order
+     * @throws IOException If the snapshot is missing, from another version, truncated or holds unreadable items
+     */
+    List<Quest> read() throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(snapshotFile.toPath()));
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+                throw new IOException("Unrecognised quest snapshot format");
+            buffer.position(HEADER_SIZE);
+
+            int count = buffer.getInt();
+            if (count < 0 || count > buffer.remaining())
+                throw new BufferUnderflowException();
+            List<Quest> quests = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                Quest quest = new Quest();
+                quest.setName(readString(buffer));
+                quest.setDisplayName(readString(buffer));
+                quest.setAuthor(readString(buffer));
+                quest.setDifficulty(readString(buffer));
+                quest.setDescription(readString(buffer));
+                byte[] stack = readBytes(buffer);
+                quest.setDisplayStack(stack == null ? null : ItemStack.deserializeBytes(stack));
+
+                int pageCount = buffer.getInt();
+                if (pageCount < 0 || pageCount > buffer.remaining())
+                    throw new BufferUnderflowException();
+                List<String> pages = new ArrayList<>(pageCount);
+                for (int j = 0; j < pageCount; j++)
+                    pages.add(readString(buffer));
+                quest.setPages(pages);
+
+                int tagCount = buffer.getInt();
+                if (tagCount < 0 || tagCount > buffer.remaining())
+                    throw new BufferUnderflowException();
+                List<String> tags = new ArrayList<>(tagCount);
+                for (int j = 0; j < tagCount; j++)
+                    tags.add(readString(buffer));
+                quest.setTags(tags);
+                quest.setCategory(readString(buffer));
+                quest.setUpdated(buffer.getLong());
+                quests.add(quest);
+            }
+            return quests;
+        } catch (RuntimeException ex) {
+            // Truncated data, or item data the server can no longer read (such as after an upgrade)
+            throw new IOException("Quest snapshot is truncated, corrupt or unreadable", ex);
+        }
+    }
+
+    /**
+     * Function to encode every quest into snapshot bytes - must be called on the server thread.
+     * @param quests Every registered quest, in catalogue order
+     * @param storageFingerprint The fingerprint of the yaml storage holding the same quests
+     * @return The encoded snapshot
+     */
+    byte[] encode(List<Quest> quests, long storageFingerprint) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(storageFingerprint);
+            out.writeInt(quests.size());
+            for (Quest quest : quests) {
+                writeString(out, quest.getName());
+                writeString(out, quest.getDisplayName());
+                writeString(out, quest.getAuthor());
+                writeString(out, quest.getDifficulty());
+                writeString(out, quest.getDescription());
+                writeBytes(out, quest.getBaseStack().serializeAsBytes());
+
+                List<String> pages = quest.getPages();
+                out.writeInt(pages.size());
+                for (String page : pages)
+                    writeString(out, page);
+
+                List<String> tags = quest.getTags();
+                out.writeInt(tags.size());
+                for (String tag : tags)
+                    writeString(out, tag);
+                writeString(out, quest.getCategory());
+                out.writeLong(quest.getUpdated());
+            }
+        } catch (IOException ex) {
+            // Unreachable - writing to an in-memory stream
+            throw new IllegalStateException(ex);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Function to write encoded snapshot bytes through a temporary file, atomically replacing the previous snapshot.
+     * @param snapshot The encoded snapshot
+     * @throws IOException If the snapshot could not be written
+     */
+    void write(byte[] snapshot) throws IOException {
+        QuestStorage.writeAtomically(snapshotFile.toPath(), snapshot);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        writeBytes(out, value == null ? null : value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(value.length);
+        out.write(value);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = readBytes(buffer);
+        return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readBytes(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0)
+            return null;
+        if (length > buffer.remaining())
+            throw new BufferUnderflowException();
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+}
@@ -0,0 +1,39 @@
+package me.plobnob.quest.provider;
+
+/**
+ * An order quests can be browsed in - every order other than the catalogue order is precomputed by the
+ * {@link QuestCatalogueIndex}.
+ */
+public enum QuestSort {
+
+    CATALOGUE("Default"),
+    NAME("Name"),
+    DIFFICULTY("Difficulty"),
+    AUTHOR("Author"),
+    RECENT("Recently updated");
+
+    // Member variables
+    private final String displayName;
+
+    QuestSort(String displayName) {
+        this.displayName = displayName;
+    }
+
+    /**
+     * Function to get the name shown for the order in the questbook GUI.
+     * @return The display name
+     */
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    /**
+     * Function to get the order after this one, cycling back to the first.
+     * @return The next order
+     */
+    public QuestSort next() {
+        QuestSort[] values = values();
+        return values[(ordinal() + 1) % values.length];
+    }
+
+}
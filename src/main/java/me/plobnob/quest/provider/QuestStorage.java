@@ -0,0 +1,115 @@
+package me.plobnob.quest.provider;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A storage layout for persisting quests.
+ * Saves are prepared on the server thread and the returned write is run by the background writer.
+ */
+interface QuestStorage {
+
+    /**
+     * Function to load every stored quest, in catalogue order.
+     * @return The loaded quests
+     * @throws IOException If the stored quests could not be read
+     */
+    List<Quest> load() throws IOException;
+
+    /**
+     * Function to fingerprint the stored quests, to tell external changes apart from our own writes.
+     * Any file added, removed, resized or given another timestamp - older or newer - changes the fingerprint.
+     * @return The fingerprint, or 0 if nothing is stored yet
+     */
+    long fingerprint();
+
+    /**
+     * Function to get the directory holding the stored quests, watched for external changes.
+     * @return The storage directory
+     */
+    Path watchDirectory();
+
+    /**
+     * Function to check whether a file in the storage directory holds stored quests.
+     * @param fileName The name of the changed file
+     * @return Whether a change to the file should trigger a reload
+     */
+    boolean isStorageFile(Path fileName);
+
+    /**
+     * Function to serialize the changes since the last save.
+     * @param quests Every registered quest, in catalogue order
+     * @param changed The quests which were registered or edited
+     * @param removed The names of quests which were unregistered
+     * @param reordered Whether quests were registered or unregistered
+     * @return The write to perform off the server thread
+     */
+    StorageWrite prepareSave(List<Quest> quests, Collection<Quest> changed, Collection<String> removed, boolean reordered);
+
+    /**
+     * A prepared write of serialized quests.
+     */
+    @FunctionalInterface
+    interface StorageWrite {
+        void write() throws IOException;
+    }
+
+    /**
+     * Utility function to fingerprint stored files by name, size and last modified time.
+     * @param files The stored files, in a stable order
+     * @return The fingerprint
+     */
+    static long fingerprint(List<File> files) {
+        long fingerprint = 17;
+        for (File file : files) {
+            fingerprint = fingerprint * 31 + file.getName().hashCode();
+            fingerprint = fingerprint * 31 + file.length();
+            fingerprint = fingerprint * 31 + file.lastModified();
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Utility function to write a file through a temporary file, atomically replacing the previous file.
+     * @param target The file to write
+     * @param contents The file contents
+     * @throws IOException If the file could not be written
+     */
+    static void writeAtomically(Path target, String contents) throws IOException {
+        writeAtomically(target, contents.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Utility function to write a file through a temporary file, atomically replacing the previous file.
+     * @param target The file to write
+     * @param contents The file contents
+     * @throws IOException If the file could not be written
+     */
+    static void writeAtomically(Path target, byte[] contents) throws IOException {
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        Files.write(temp, contents);
+        moveAtomically(temp, target);
+    }
+
+    /**
+     * Utility function to move a fully written temporary file over its target, atomically where supported.
+     * @param temp The temporary file
+     * @param target The file to replace
+     * @throws IOException If the file could not be moved
+     */
+    static void moveAtomically(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+}
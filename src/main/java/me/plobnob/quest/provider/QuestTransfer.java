@@ -0,0 +1,387 @@
+package me.plobnob.quest.provider;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import org.bukkit.Bukkit;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.plugin.Plugin;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+/**
+ * A class to bulk export and import quests as line-delimited JSON (one quest per line) under the transfers directory.
+ * Files are streamed a record at a time on a dedicated worker thread, so only the server thread commit of an import
+ * touches the catalogue - as a single swap followed by a single save.
+ * Imports are all or nothing - if any record is invalid, the errors are reported and nothing is committed.
+ * Only one transfer runs at a time.
+ */
+public class QuestTransfer {
+
+    // Progress is logged after each batch of this many records
+    private static final int BATCH_SIZE = 1000;
+    // At most this many record errors are reported back - the rest are only counted
+    private static final int MAX_REPORTED_ERRORS = 10;
+    // Limits matching the create and edit commands
+    private static final int MAX_NAME_LENGTH = 48;
+    private static final Pattern FILE_NAME = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+    private static final String FILE_EXTENSION = ".ndjson";
+
+    // Member variables
+    private final Plugin plugin;
+    private final QuestProvider questProvider;
+    private final File directory;
+    private final Gson gson = new Gson();
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "SimpleQuestBook-Transfer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Executor serverThread;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    /**
+     * Default constructor.
+     * @param plugin The plugin instance
+     * @param questProvider The quest provider
+     */
+    public QuestTransfer(Plugin plugin, QuestProvider questProvider) {
+        this.plugin = plugin;
+        this.questProvider = questProvider;
+        this.directory = new File(plugin.getDataFolder(), "transfers");
+        this.serverThread = task -> {
+            if (plugin.isEnabled())
+                Bukkit.getScheduler().runTask(plugin, task);
+        };
+    }
+
+    /**
+     * Function to check whether a transfer file name is allowed - a plain name, without an extension or path.
+     * @param fileName The file name
+     * @return Whether the file name is allowed
+     */
+    public static boolean isValidFileName(String fileName) {
+        return fileName != null && FILE_NAME.matcher(fileName).matches();
+    }
+
+    /**
+     * Function to export the catalogue, as it is when called, to a transfer file - replacing any previous export.
+     * Quest contents are edited in place on the server thread, so the records are built here (on the server thread)
+     * and only written out on the worker. Must be called on the server thread.
+     * @param fileName The transfer file name, checked with {@link #isValidFileName(String)}
+     * @return A future completed on the server thread with the number of exported quests, or null if a transfer is running
+     */
+    public CompletableFuture<Integer> exportQuests(String fileName) {
+        if (!running.compareAndSet(false, true))
+            return null;
+
+        List<JsonObject> records;
+        try {
+            records = questProvider.getQuests().stream().map(QuestTransfer::toJson).toList();
+        } catch (RuntimeException ex) {
+            running.set(false);
+            throw ex;
+        }
+        return finish(CompletableFuture.supplyAsync(() -> {
+            try {
+                return writeQuests(records, file(fileName));
+            } catch (IOException ex) {
+                throw new CompletionException(ex);
+            }
+        }, worker));
+    }
+
+    /**
+     * Function to import quests from a transfer file, committing them to the quest provider if every record is valid.
+     * @param fileName The transfer file name, checked with {@link #isValidFileName(String)}
+     * @param replace Whether quests missing from the file are unregistered - otherwise they are kept
+     * @return A future completed on the server thread with the import result, or null if a transfer is running
+     */
+    public CompletableFuture<ImportResult> importQuests(String fileName, boolean replace) {
+        if (!running.compareAndSet(false, true))
+            return null;
+
+        return finish(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return readQuests(file(fileName));
+                    } catch (IOException ex) {
+                        throw new CompletionException(ex);
+                    }
+                }, worker)
+                .thenApplyAsync(read -> new ImportResult(read.quests().size(), read.errorCount(), read.errors(),
+                        read.errorCount() == 0 ? questProvider.importQuests(read.quests(), replace) : null), serverThread));
+    }
+
+    /**
+     * Function to stop the worker thread (in the event of a disable) - any transfer in progress is abandoned.
+     */
+    public void close() {
+        worker.shutdownNow();
+    }
+
+    /**
+     * Utility function to clear the running flag and log any failure once a transfer completes, and complete on the
+     * server thread.
+     * @param transfer The transfer
+     * @param <T> The transfer result type
+     * @return The transfer, completing on the server thread
+     */
+    private <T> CompletableFuture<T> finish(CompletableFuture<T> transfer) {
+        return transfer.whenComplete((result, ex) -> {
+                    running.set(false);
+                    if (ex != null)
+                        plugin.getComponentLogger().error("Failed to transfer quests!", ex);
+                })
+                .whenCompleteAsync((result, ex) -> {}, serverThread);
+    }
+
+    /**
+     * Utility function to get a transfer file.
+     * @param fileName The transfer file name
+     * @return The transfer file
+     */
+    private File file(String fileName) {
+        if (!isValidFileName(fileName))
+            throw new IllegalArgumentException("Invalid transfer file name: " + fileName);
+        return new File(directory, fileName + FILE_EXTENSION);
+    }
+
+    /**
+     * Utility function to stream quest records into a transfer file, through a temporary file (called on the worker thread).
+     * @param quests The transfer records to write
+     * @param file The transfer file
+     * @return The number of quests written
+     * @throws IOException If the file could not be written
+     */
+    private int writeQuests(List<JsonObject> quests, File file) throws IOException {
+        Files.createDirectories(directory.toPath());
+        Path temp = file.toPath().resolveSibling(file.getName() + ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < quests.size(); i++) {
+                out.write(gson.toJson(quests.get(i)));
+                out.newLine();
+                if ((i + 1) % BATCH_SIZE == 0)
+                    plugin.getComponentLogger().info("Exported {} of {} quests to {}", i + 1, quests.size(), file.getName());
+            }
+        }
+        QuestStorage.moveAtomically(temp, file.toPath());
+        plugin.getComponentLogger().info("Exported {} quests to {}", quests.size(), file.getName());
+        return quests.size();
+    }
+
+    /**
+     * Utility function to stream and validate quests from a transfer file (called on the worker thread).
+     * @param file The transfer file
+     * @return The read quests and any record errors
+     * @throws IOException If the file could not be read
+     */
+    private ReadQuests readQuests(File file) throws IOException {
+        List<Quest> quests = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        List<String> errors = new ArrayList<>();
+        int errorCount = 0;
+        int lineNumber = 0;
+
+        try (BufferedReader in = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                lineNumber++;
+                if (!line.isBlank()) {
+                    try {
+                        Quest quest = fromJson(JsonParser.parseString(line));
+                        if (!names.add(quest.getName().toLowerCase(Locale.ROOT)))
+                            throw new IllegalArgumentException("Duplicate quest name " + quest.getName());
+                        quests.add(quest);
+                    } catch (JsonParseException | IllegalArgumentException | IllegalStateException ex) {
+                        if (errorCount++ < MAX_REPORTED_ERRORS)
+                            errors.add("Line " + lineNumber + ": " + ex.getMessage());
+                    }
+                }
+                if (lineNumber % BATCH_SIZE == 0)
+                    plugin.getComponentLogger().info("Read {} lines from {}", lineNumber, file.getName());
+            }
+        }
+        if (quests.isEmpty() && errorCount++ == 0)
+            errors.add("No quests were found in " + file.getName());
+        return new ReadQuests(quests, errorCount, errors);
+    }
+
+    /**
+     * Utility function to serialize a quest into a transfer record.
+     * @param quest The quest
+     * @return The transfer record
+     */
+    private static JsonObject toJson(Quest quest) {
+        JsonObject object = new JsonObject();
+        object.addProperty("name", quest.getName());
+        object.addProperty("displayName", quest.getDisplayName());
+        object.addProperty("author", quest.getAuthor());
+        object.addProperty("difficulty", quest.getDifficulty());
+        object.addProperty("description", quest.getDescription());
+        object.addProperty("displayStack", Base64.getEncoder().encodeToString(quest.getBaseStack().serializeAsBytes()));
+
+        JsonArray pages = new JsonArray();
+        quest.getPages().forEach(pages::add);
+        object.add("pages", pages);
+
+        if (!quest.getTags().isEmpty()) {
+            JsonArray tags = new JsonArray();
+            quest.getTags().forEach(tags::add);
+            object.add("tags", tags);
+        }
+        if (quest.getCategory() != null)
+            object.addProperty("category", quest.getCategory());
+        if (quest.getUpdated() > 0)
+            object.addProperty("updated", quest.getUpdated());
+        return object;
+    }
+
+    /**
+     * Utility function to deserialize and validate a transfer record - missing text fields default to empty.
+     * @param element The transfer record
+     * @return The quest
+     * @throws IllegalArgumentException If the record is invalid
+     */
+    private static Quest fromJson(JsonElement element) {
+        if (!element.isJsonObject())
+            throw new IllegalArgumentException("Record is not a JSON object");
+        JsonObject object = element.getAsJsonObject();
+
+        String name = getString(object, "name");
+        if (name == null || name.isBlank())
+            throw new IllegalArgumentException("Missing quest name");
+        if (name.length() > MAX_NAME_LENGTH)
+            throw new IllegalArgumentException("Quest name " + name + " is more than " + MAX_NAME_LENGTH + " characters in length");
+        if (name.contains(" "))
+            throw new IllegalArgumentException("Quest name " + name + " contains spaces");
+
+        Quest quest = new Quest();
+        quest.setName(name);
+        String displayName = getString(object, "displayName");
+        quest.setDisplayName(displayName == null ? name : displayName);
+        quest.setAuthor(getStringOrEmpty(object, "author"));
+        quest.setDifficulty(getStringOrEmpty(object, "difficulty"));
+        quest.setDescription(getStringOrEmpty(object, "description"));
+
+        String displayStack = getString(object, "displayStack");
+        if (displayStack != null) {
+            try {
+                quest.setDisplayStack(ItemStack.deserializeBytes(Base64.getDecoder().decode(displayStack)));
+            } catch (RuntimeException ex) {
+                throw new IllegalArgumentException("Invalid display stack for quest " + name);
+            }
+        }
+
+        quest.setPages(getStrings(object, "pages"));
+
+        List<String> tags = getStrings(object, "tags");
+        for (String tag : tags) {
+            if (!QuestCatalogueIndex.isValidTag(tag))
+                throw new IllegalArgumentException("Invalid tag " + tag + " for quest " + name);
+        }
+        quest.setTags(tags);
+        String category = getString(object, "category");
+        if (category != null && !QuestCatalogueIndex.isValidTag(category))
+            throw new IllegalArgumentException("Invalid category " + category + " for quest " + name);
+        quest.setCategory(category);
+
+        JsonElement updated = object.get("updated");
+        if (updated != null && !updated.isJsonNull()) {
+            if (!updated.isJsonPrimitive() || !updated.getAsJsonPrimitive().isNumber())
+                throw new IllegalArgumentException("Field updated is not a number");
+            quest.setUpdated(updated.getAsLong());
+        }
+        return quest;
+    }
+
+    /**
+     * Utility function to read an optional array of text from a transfer record.
+     * @param object The transfer record
+     * @param key The field name
+     * @return The field values, or an empty list if the field is missing
+     * @throws IllegalArgumentException If the field is not an array of text
+     */
+    private static List<String> getStrings(JsonObject object, String key) {
+        List<String> values = new ArrayList<>();
+        JsonElement element = object.get(key);
+        if (element == null || element.isJsonNull())
+            return values;
+        if (!element.isJsonArray())
+            throw new IllegalArgumentException("Field " + key + " is not an array");
+        for (JsonElement value : element.getAsJsonArray()) {
+            if (!value.isJsonPrimitive() || !value.getAsJsonPrimitive().isString())
+                throw new IllegalArgumentException("Field " + key + " contains a value which is not text");
+            values.add(value.getAsString());
+        }
+        return values;
+    }
+
+    /**
+     * Utility function to read an optional text field from a transfer record.
+     * @param object The transfer record
+     * @param key The field name
+     * @return The field value, or null if it is missing
+     * @throws IllegalArgumentException If the field is not text
+     */
+    private static String getString(JsonObject object, String key) {
+        JsonElement element = object.get(key);
+        if (element == null || element.isJsonNull())
+            return null;
+        if (!element.isJsonPrimitive() || !element.getAsJsonPrimitive().isString())
+            throw new IllegalArgumentException("Field " + key + " is not text");
+        return element.getAsString();
+    }
+
+    /**
+     * Utility function to read an optional text field from a transfer record, defaulting to empty.
+     * @param object The transfer record
+     * @param key The field name
+     * @return The field value, or an empty string if it is missing
+     */
+    private static String getStringOrEmpty(JsonObject object, String key) {
+        String value = getString(object, key);
+        return value == null ? "" : value;
+    }
+
+    /**
+     * The result of an import.
+     * @param imported The number of valid records read
+     * @param errorCount The number of invalid records - the import is not committed if there are any
+     * @param errors Messages for the first invalid records
+     * @param changes The changes made to the catalogue, or null if the import was not committed
+     */
+    public record ImportResult(int imported, int errorCount, List<String> errors, QuestProvider.CatalogueChanges changes) {
+    }
+
+    /**
+     * The quests read from a transfer file, before they are committed.
+     * @param quests The valid quests
+     * @param errorCount The number of invalid records
+     * @param errors Messages for the first invalid records
+     */
+    private record ReadQuests(List<Quest> quests, int errorCount, List<String> errors) {
+    }
+
+}
@@ -0,0 +1,199 @@
+package me.plobnob.quest.provider;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.plugin.Plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A storage layout keeping each quest in its own file under the quests directory.
+ * Only changed quests are rewritten, and an index file records the catalogue order.
+ */
+class ShardedQuestStorage implements QuestStorage {
+
+    // File naming constants - the index name can never be produced by fileKey, as ~ is always followed by hex
+    private static final String INDEX_FILE = "~index.yml";
+    private static final String SHARD_EXTENSION = ".yml";
+
+    // Member variables
+    private final Plugin plugin;
+    private final File questsDirectory;
+    private final File legacyFile;
+
+    /**
+     * Default constructor.
+     * @param plugin The plugin instance
+     * @param questsDirectory The directory holding one file per quest
+     * @param legacyFile The single quests.yml file to migrate from
+     */
+    ShardedQuestStorage(Plugin plugin, File questsDirectory, File legacyFile) {
+        this.plugin = plugin;
+        this.questsDirectory = questsDirectory;
+        this.legacyFile = legacyFile;
+    }
+
+    @Override
+    public List<Quest> load() throws IOException {
+        if (!questsDirectory.isDirectory() && legacyFile.exists())
+            return migrate();
+
+        Files.createDirectories(questsDirectory.toPath());
+
+        // Load every shard, then order them by the index with any unindexed shards appended by name
+        Map<String, Quest> shards = new LinkedHashMap<>();
+        File[] files = questsDirectory.listFiles((dir, name) -> name.endsWith(SHARD_EXTENSION) && !name.equals(INDEX_FILE));
+        if (files != null) {
+            Arrays.sort(files);
+            for (File file : files) {
+                Object loaded = YamlConfiguration.loadConfiguration(file).get("quest");
+                if (!(loaded instanceof Quest quest) || quest.getName() == null) {
+                    plugin.getComponentLogger().warn("Skipping unreadable quest file {}!", file.getName());
+                    continue;
+                }
+                shards.put(fileKey(quest.getName()), quest);
+            }
+        }
+
+        List<Quest> quests = new ArrayList<>(shards.size());
+        for (String name : YamlConfiguration.loadConfiguration(new File(questsDirectory, INDEX_FILE)).getStringList("order")) {
+            Quest quest = shards.remove(fileKey(name));
+            if (quest != null)
+                quests.add(quest);
+        }
+        quests.addAll(shards.values());
+        return quests;
+    }
+
+    @Override
+    public long fingerprint() {
+        File[] files = questsDirectory.listFiles((dir, name) -> name.endsWith(SHARD_EXTENSION));
+        if (files == null)
+            return 0;
+        Arrays.sort(files);
+        return QuestStorage.fingerprint(Arrays.asList(files));
+    }
+
+    @Override
+    public Path watchDirectory() {
+        return questsDirectory.toPath();
+    }
+
+    @Override
+    public boolean isStorageFile(Path fileName) {
+        return fileName.toString().endsWith(SHARD_EXTENSION);
+    }
+
+    @Override
+    public StorageWrite prepareSave(List<Quest> quests, Collection<Quest> changed, Collection<String> removed, boolean reordered) {
+        Map<Path, String> writes = new LinkedHashMap<>();
+        Set<Path> deletes = new HashSet<>();
+
+        for (String name : removed)
+            deletes.add(shardPath(name));
+        for (Quest quest : changed) {
+            Path path = shardPath(quest.getName());
+            writes.put(path, serializeQuest(quest));
+            deletes.remove(path);
+        }
+        if (reordered)
+            writes.put(new File(questsDirectory, INDEX_FILE).toPath(), serializeIndex(quests));
+
+        return () -> {
+            for (Path path : deletes)
+                Files.deleteIfExists(path);
+            for (Map.Entry<Path, String> write : writes.entrySet())
+                QuestStorage.writeAtomically(write.getKey(), write.getValue());
+        };
+    }
+
+    /**
+     * Utility function to migrate quests from the single quests.yml file into one file per quest.
+     * The old file is kept alongside as quests.yml.migrated. Quests sharing a name (ignoring case) are renamed first, as
+     * they would otherwise share a file.
+     * @return The migrated quests
+     * @throws IOException If the migrated quests could not be written, or two quests would share a file
+     */
+    private List<Quest> migrate() throws IOException {
+        List<Quest> quests = new SingleFileQuestStorage(legacyFile).load();
+        plugin.getComponentLogger().info("Migrating {} quests from {} into {}", quests.size(), legacyFile.getName(), questsDirectory.getName());
+
+        QuestCatalogue.resolveNames(quests).forEach((quest, oldName) ->
+                plugin.getComponentLogger().warn("Renamed quest {} to {} as its name is missing or already taken (ignoring case)!", oldName, quest.getName()));
+        Set<Path> paths = new HashSet<>();
+        for (Quest quest : quests) {
+            if (!paths.add(shardPath(quest.getName())))
+                throw new IOException("Quests would share the file " + shardPath(quest.getName()).getFileName() + " - migration aborted!");
+        }
+
+        Files.createDirectories(questsDirectory.toPath());
+        prepareSave(quests, quests, List.of(), true).write();
+
+        Path legacyPath = legacyFile.toPath();
+        Files.move(legacyPath, legacyPath.resolveSibling(legacyFile.getName() + ".migrated"), StandardCopyOption.REPLACE_EXISTING);
+        return quests;
+    }
+
+    /**
+     * Utility function to serialize a single quest into its own yaml document.
+     * @param quest The quest to serialize
+     * @return The serialized quest
+     */
+    private String serializeQuest(Quest quest) {
+        YamlConfiguration config = new YamlConfiguration();
+        config.set("quest", quest);
+        return config.saveToString();
+    }
+
+    /**
+     * Utility function to serialize the catalogue order.
+     * @param quests Every registered quest, in catalogue order
+     * @return The serialized index
+     */
+    private String serializeIndex(List<Quest> quests) {
+        YamlConfiguration config = new YamlConfiguration();
+        config.set("order", quests.stream().map(Quest::getName).toList());
+        return config.saveToString();
+    }
+
+    /**
+     * Utility function to get the file for a quest name.
+     * @param name The quest name
+     * @return The path of the quest's file
+     */
+    private Path shardPath(String name) {
+        return new File(questsDirectory, fileKey(name) + SHARD_EXTENSION).toPath();
+    }
+
+    /**
+     * Utility function to map a quest name onto a safe file name.
+     * Names are lower cased so the layout behaves the same on case-insensitive file systems, and any character
+     * outside [a-z0-9_-] is hex-escaped as ~XX per UTF-8 byte.
+     * @param name The quest name
+     * @return The file name without extension
+     */
+    static String fileKey(String name) {
+        StringBuilder builder = new StringBuilder(name.length());
+        for (byte b : name.toLowerCase(Locale.ROOT).getBytes(StandardCharsets.UTF_8)) {
+            if ((b >= 'a' && b <= 'z') || (b >= '0' && b <= '9') || b == '_' || b == '-')
+                builder.append((char) b);
+            else
+                builder.append('~').append(String.format("%02x", b & 0xff));
+        }
+        return builder.toString();
+    }
+
+}
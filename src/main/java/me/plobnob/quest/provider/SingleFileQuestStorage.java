@@ -0,0 +1,62 @@
+package me.plobnob.quest.provider;
+
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A storage layout keeping every quest in a single quests.yml list.
+ * Any change rewrites the whole file.
+ */
+class SingleFileQuestStorage implements QuestStorage {
+
+    // Member variables
+    private final File questsFile;
+    private volatile FileConfiguration questsConfig = new YamlConfiguration();
+
+    /**
+     * Default constructor.
+     * @param questsFile The quests.yml file
+     */
+    SingleFileQuestStorage(File questsFile) {
+        this.questsFile = questsFile;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Quest> load() {
+        // Loaded into a new configuration before publishing, as reloads happen off the server thread
+        FileConfiguration loaded = YamlConfiguration.loadConfiguration(questsFile);
+        List<Quest> quests = (List<Quest>) loaded.getList("quests");
+        questsConfig = loaded;
+        return quests == null ? new ArrayList<>() : quests;
+    }
+
+    @Override
+    public long fingerprint() {
+        return questsFile.exists() ? QuestStorage.fingerprint(List.of(questsFile)) : 0;
+    }
+
+    @Override
+    public Path watchDirectory() {
+        return questsFile.getParentFile().toPath();
+    }
+
+    @Override
+    public boolean isStorageFile(Path fileName) {
+        return fileName.toString().equals(questsFile.getName());
+    }
+
+    @Override
+    public StorageWrite prepareSave(List<Quest> quests, Collection<Quest> changed, Collection<String> removed, boolean reordered) {
+        questsConfig.set("quests", quests);
+        String contents = questsConfig.saveToString();
+        return () -> QuestStorage.writeAtomically(questsFile.toPath(), contents);
+    }
+
+}
@@ -0,0 +1,101 @@
+package me.plobnob.quest.util;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.minimessage.MiniMessage;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded, thread-safe LRU cache of parsed MiniMessage components, keyed by the final template string.
+ * Components are immutable, so a cached component is shared by every caller.
+ * Memory stays bounded with user-authored templates - the entry count is capped and long templates are never cached.
+ */
+public final class ComponentCache {
+
+    // Cache bounds - at most MAX_ENTRIES templates of at most MAX_TEMPLATE_LENGTH characters are held
+    private static final int MAX_ENTRIES = 1024;
+    private static final int MAX_TEMPLATE_LENGTH = 256;
+
+    // Cached components, least recently used first
+    private static final Map<String, Component> CACHE = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Component> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    });
+
+    // Cache statistics
+    private static final LongAdder HITS = new LongAdder();
+    private static final LongAdder MISSES = new LongAdder();
+    private static final LongAdder UNCACHEABLE = new LongAdder();
+
+    private ComponentCache() {
+    }
+
+    /**
+     * Function to parse a MiniMessage template, reusing the cached component if the template was parsed recently.
+     * Parsing happens outside the cache lock, so a template may occasionally be parsed twice by racing threads.
+     * @param template The MiniMessage template
+     * @return The parsed component
+     */
+    public static Component parse(String template) {
+        if (template.length() > MAX_TEMPLATE_LENGTH) {
+            UNCACHEABLE.increment();
+            return MiniMessage.miniMessage().deserialize(template);
+        }
+
+        Component component = CACHE.get(template);
+        if (component != null) {
+            HITS.increment();
+            return component;
+        }
+
+        MISSES.increment();
+        component = MiniMessage.miniMessage().deserialize(template);
+        CACHE.put(template, component);
+        return component;
+    }
+
+    /**
+     * Function to get the number of parses served from the cache.
+     * @return The hit count
+     */
+    public static long getHits() {
+        return HITS.sum();
+    }
+
+    /**
+     * Function to get the number of parses which missed the cache.
+     * @return The miss count
+     */
+    public static long getMisses() {
+        return MISSES.sum();
+    }
+
+    /**
+     * Function to get the number of parses of templates too long to cache.
+     * @return The uncacheable count
+     */
+    public static long getUncacheable() {
+        return UNCACHEABLE.sum();
+    }
+
+    /**
+     * Function to get the number of cached components.
+     * @return The cache size
+     */
+    public static int size() {
+        return CACHE.size();
+    }
+
+    /**
+     * Function to drop every cached component.
+     */
+    public static void clear() {
+        CACHE.clear();
+    }
+
+}
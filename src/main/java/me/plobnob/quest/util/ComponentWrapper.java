@@ -0,0 +1,202 @@
+package me.plobnob.quest.util;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextComponent;
+import net.kyori.adventure.text.format.Style;
+import net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Utility class to word-wrap an already parsed component into lines.
+ * Only visible characters count toward the line length - tags never do, as the text has been parsed once beforehand.
+ * Every line carries the full style of its text, so formatting opened on one line continues onto the next.
+ * Words are never broken, so a word longer than the line length is given a line of its own.
+ */
+public final class ComponentWrapper {
+
+    private ComponentWrapper() {
+    }
+
+    /**
+     * Function to wrap a component into lines.
+     * @param component The parsed component
+     * @param lineLength The maximum number of visible characters per line
+     * @return The wrapped lines (at least one)
+     */
+    public static List<Component> wrap(Component component, int lineLength) {
+        LineBuilder builder = new LineBuilder(lineLength);
+        flatten(component, Style.empty(), builder);
+        return builder.finish();
+    }
+
+    /**
+     * Utility function to walk a component tree in order, passing each piece of text to the line builder with its
+     * effective style (its own style, with anything unset inherited from its parents).
+     * @param component The component to walk
+     * @param parentStyle The effective style of the component's parent
+     * @param builder The line builder
+     */
+    private static void flatten(Component component, Style parentStyle, LineBuilder builder) {
+        Style style = component.style().merge(parentStyle, Style.Merge.Strategy.IF_ABSENT_ON_TARGET);
+        if (!(component instanceof TextComponent text)) {
+            // Translatable, keybind and other components are resolved by the client, so are kept whole
+            builder.appendAtomic(component.style(style), PlainTextComponentSerializer.plainText().serialize(component).length());
+            return;
+        }
+
+        builder.appendText(text.content(), style);
+        for (Component child : component.children())
+            flatten(child, style, builder);
+    }
+
+    /**
+     * A run of text sharing a single style, or a component which cannot be split.
+     */
+    private static final class Run {
+
+        // Member variables - atomic is set for components which cannot be split
+        private final Style style;
+        private final StringBuilder text = new StringBuilder();
+        private final Component atomic;
+
+        private Run(Style style, Component atomic) {
+            this.style = style;
+            this.atomic = atomic;
+        }
+
+        private Component toComponent() {
+            return atomic != null ? atomic : Component.text(text.toString(), style);
+        }
+
+    }
+
+    /**
+     * Greedy line builder - text is buffered a word at a time and committed to the current line once the word ends.
+     */
+    private static final class LineBuilder {
+
+        // Member variables - the finished lines, the current line and the word being read
+        private final int lineLength;
+        private final List<Component> lines = new ArrayList<>();
+        private final List<Run> line = new ArrayList<>();
+        private int lineWidth;
+        private final List<Run> word = new ArrayList<>();
+        private int wordWidth;
+
+        // Member variables - whitespace read since the last word, styled as its first character
+        private Style spaceStyle;
+        private int spaceCount;
+
+        private LineBuilder(int lineLength) {
+            this.lineLength = lineLength;
+        }
+
+        /**
+         * Function to read a piece of text.
+         * @param text The text
+         * @param style The effective style of the text
+         */
+        private void appendText(String text, Style style) {
+            for (int i = 0; i < text.length(); ) {
+                int codePoint = text.codePointAt(i);
+                i += Character.charCount(codePoint);
+
+                if (codePoint == '\n') {
+                    endWord();
+                    endLine();
+                } else if (Character.isWhitespace(codePoint)) {
+                    endWord();
+                    if (spaceCount++ == 0)
+                        spaceStyle = style;
+                } else {
+                    appendTo(word, style).text.appendCodePoint(codePoint);
+                    wordWidth++;
+                }
+            }
+        }
+
+        /**
+         * Function to read a component which cannot be split, as part of the current word.
+         * @param component The component, with its effective style applied
+         * @param width The visible width of the component
+         */
+        private void appendAtomic(Component component, int width) {
+            word.add(new Run(component.style(), component));
+            wordWidth += width;
+        }
+
+        /**
+         * Function to finish reading and get the wrapped lines.
+         * @return The wrapped lines
+         */
+        private List<Component> finish() {
+            endWord();
+            if (!line.isEmpty() || lines.isEmpty())
+                endLine();
+            return lines;
+        }
+
+        /**
+         * Utility function to commit the current word to the current line, starting a new line if it does not fit.
+         * Whitespace before the word is kept, unless the word starts a line.
+         */
+        private void endWord() {
+            if (word.isEmpty())
+                return;
+
+            if (!line.isEmpty() && lineWidth + spaceCount + wordWidth > lineLength)
+                endLine();
+            if (!line.isEmpty() && spaceCount > 0) {
+                appendTo(line, spaceStyle).text.repeat(' ', spaceCount);
+                lineWidth += spaceCount;
+            }
+
+            for (Run run : word) {
+                if (run.atomic != null)
+                    line.add(run);
+                else
+                    appendTo(line, run.style).text.append(run.text);
+            }
+            lineWidth += wordWidth;
+
+            word.clear();
+            wordWidth = 0;
+            spaceCount = 0;
+        }
+
+        /**
+         * Utility function to finish the current line, dropping any trailing whitespace.
+         */
+        private void endLine() {
+            List<Component> children = new ArrayList<>(line.size());
+            for (Run run : line)
+                children.add(run.toComponent());
+            lines.add(Component.textOfChildren(children.toArray(Component[]::new)));
+
+            line.clear();
+            lineWidth = 0;
+            spaceCount = 0;
+        }
+
+        /**
+         * Utility function to get a run to append text of a style to, reusing the last run if it has the same style.
+         * @param runs The runs to append to
+         * @param style The style of the text
+         * @return The run to append to
+         */
+        private static Run appendTo(List<Run> runs, Style style) {
+            if (!runs.isEmpty()) {
+                Run last = runs.getLast();
+                if (last.atomic == null && last.style.equals(style))
+                    return last;
+            }
+            Run run = new Run(style, null);
+            runs.add(run);
+            return run;
+        }
+
+    }
+
+}
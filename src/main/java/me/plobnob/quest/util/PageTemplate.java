@@ -0,0 +1,169 @@
+package me.plobnob.quest.util;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextComponent;
+import net.kyori.adventure.text.minimessage.MiniMessage;
+import net.kyori.adventure.text.minimessage.tag.Tag;
+import net.kyori.adventure.text.minimessage.tag.resolver.TagResolver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A book page compiled once into MiniMessage components, with holes left where placeholders are substituted.
+ * Pages without placeholders render to a single shared component.
+ * Resolved values are always parsed as MiniMessage, as they were before pages were compiled, so an expansion returning
+ * formatted text renders the same on every page. A value filling a hole is parsed on its own and takes the style of
+ * the text around it - tags it leaves open end with the value rather than running on into the rest of the page.
+ */
+public final class PageTemplate {
+
+    // Placeholders in the PlaceholderAPI form %identifier_params%
+    private static final Pattern PLACEHOLDER_PATTERN = Pattern.compile("%[^%_\\s]+_[^%\\n]*%");
+
+    // Holes are parsed as marker text components - compaction is skipped so they stay separate nodes
+    private static final char HOLE_MARKER = '\uE000';
+    private static final String HOLE_TAG = "qb_hole";
+    private static final MiniMessage TEMPLATE_PARSER = MiniMessage.builder()
+            .postProcessor(UnaryOperator.identity())
+            .build();
+    private static final TagResolver HOLE_RESOLVER = TagResolver.resolver(HOLE_TAG, (args, context) ->
+            Tag.selfClosingInserting(Component.text(HOLE_MARKER + args.popOr("Missing placeholder index").value())));
+
+    // Member variables - exactly one of component or source is used when rendering
+    private final List<String> placeholders;
+    private final Component component;
+    private final String source;
+
+    private PageTemplate(List<String> placeholders, Component component, String source) {
+        this.placeholders = placeholders;
+        this.component = component;
+        this.source = source;
+    }
+
+    /**
+     * Function to compile a raw page into a template.
+     * Pages with placeholders inside tag arguments cannot hold component holes and fall back to parsing per render.
+     * @param page The raw MiniMessage page contents
+     * @return The compiled page template
+     */
+    public static PageTemplate compile(String page) {
+        Matcher matcher = PLACEHOLDER_PATTERN.matcher(page);
+        List<String> placeholders = new ArrayList<>();
+        StringBuilder builder = new StringBuilder();
+        boolean insideTag = false;
+
+        while (matcher.find()) {
+            insideTag |= page.lastIndexOf('<', matcher.start()) > page.lastIndexOf('>', matcher.start());
+            matcher.appendReplacement(builder, "<" + HOLE_TAG + ":" + placeholders.size() + ">");
+            placeholders.add(matcher.group());
+        }
+        matcher.appendTail(builder);
+
+        if (placeholders.isEmpty())
+            return new PageTemplate(List.of(), MiniMessage.miniMessage().deserialize(page), null);
+        if (insideTag)
+            return new PageTemplate(List.copyOf(placeholders), null, page);
+        return new PageTemplate(List.copyOf(placeholders), TEMPLATE_PARSER.deserialize(builder.toString(), HOLE_RESOLVER), null);
+    }
+
+    /**
+     * Function to get every placeholder used by this page, in order of appearance (duplicates included).
+     * @return The placeholders on this page
+     */
+    public List<String> getPlaceholders() {
+        return placeholders;
+    }
+
+    /**
+     * Function to get every placeholder used across a set of pages, in order of appearance (duplicates included).
+     * @param pages The compiled pages
+     * @return The placeholders on the pages
+     */
+    public static List<String> getPlaceholders(List<PageTemplate> pages) {
+        List<String> placeholders = new ArrayList<>();
+        for (PageTemplate page : pages)
+            placeholders.addAll(page.getPlaceholders());
+        return placeholders;
+    }
+
+    /**
+     * Function to render the page, filling each placeholder hole with its resolved value.
+     * @param resolver A function mapping a placeholder (including its percent signs) to its value
+     * @return The rendered page
+     */
+    public Component render(Function<String, String> resolver) {
+        if (placeholders.isEmpty())
+            return component;
+
+        if (source != null) {
+            Matcher matcher = PLACEHOLDER_PATTERN.matcher(source);
+            StringBuilder builder = new StringBuilder();
+            while (matcher.find())
+                matcher.appendReplacement(builder, Matcher.quoteReplacement(resolver.apply(matcher.group())));
+            matcher.appendTail(builder);
+            return MiniMessage.miniMessage().deserialize(builder.toString());
+        }
+
+        List<String> values = new ArrayList<>(placeholders.size());
+        for (String placeholder : placeholders)
+            values.add(resolver.apply(placeholder));
+        return fill(component, values).compact();
+    }
+
+    /**
+     * Utility function to replace hole markers in a component tree, rebuilding only the branches that changed.
+     * @param node The component to fill
+     * @param values The resolved values by hole index
+     * @return The filled component
+     */
+    private static Component fill(Component node, List<String> values) {
+        if (node instanceof TextComponent text && !text.content().isEmpty() && text.content().charAt(0) == HOLE_MARKER) {
+            int index = holeIndex(text.content());
+            String value = index >= 0 && index < values.size() ? values.get(index) : "";
+            // Plain values need no parse - only tags and escapes change how MiniMessage reads text
+            if (value.indexOf('<') < 0 && value.indexOf('\\') < 0)
+                return text.content(value);
+            return text.content("").append(MiniMessage.miniMessage().deserialize(value));
+        }
+
+        List<Component> children = node.children();
+        if (children.isEmpty())
+            return node;
+
+        List<Component> filled = null;
+        for (int i = 0; i < children.size(); i++) {
+            Component child = children.get(i);
+            Component replaced = fill(child, values);
+            if (replaced != child && filled == null)
+                filled = new ArrayList<>(children.subList(0, i));
+            if (filled != null)
+                filled.add(replaced);
+        }
+
+        return filled == null ? node : node.children(filled);
+    }
+
+    /**
+     * Utility function to read the index following a hole marker.
+     * @param content The hole component content
+     * @return The hole index, or -1 if the content was not a valid index (a hand-written hole tag)
+     */
+    private static int holeIndex(String content) {
+        if (content.length() < 2 || content.length() > 10)
+            return -1;
+        int index = 0;
+        for (int i = 1; i < content.length(); i++) {
+            char c = content.charAt(i);
+            if (c < '0' || c > '9')
+                return -1;
+            index = index * 10 + (c - '0');
+        }
+        return index;
+    }
+
+}
@@ -7,6 +7,8 @@ public class PluginConstants {
 
     // Command constants
     public static final String CMD_QUESTBOOK = "questbook";
+    public static final String CMD_QUESTBOOK_ALIAS = "qb";
+    public static final String CMD_QUESTBOOK_DESCRIPTION = "Opens the quest book";
 
     // Permission constants
     public static final String PERM_QUESTBOOK = "questbook";
@@ -16,6 +18,9 @@ public class PluginConstants {
     public static final String PERM_QUESTBOOK_EDIT = "questbook.edit";
     public static final String PERM_QUESTBOOK_CREATE = "questbook.create";
     public static final String PERM_QUESTBOOK_DELETE = "questbook.delete";
+    public static final String PERM_QUESTBOOK_STATS = "questbook.stats";
+    public static final String PERM_QUESTBOOK_EXPORT = "questbook.export";
+    public static final String PERM_QUESTBOOK_IMPORT = "questbook.import";
 
     // Text constants (permission checks)
     public static final Component TEXT_NO_PERMISSION = MiniMessage.miniMessage()
@@ -28,5 +33,8 @@ public class PluginConstants {
     // Title constants (item naming)
     public static final Component TITLE_QUESTBOOK = MiniMessage.miniMessage().deserialize("<yellow>Quests</yellow>");
     public static final Component TITLE_EMPTY = MiniMessage.miniMessage().deserialize("<black></black>");
+    public static final Component TITLE_PREVIOUS_PAGE = MiniMessage.miniMessage().deserialize("<yellow>Previous page</yellow>");
+    public static final Component TITLE_NEXT_PAGE = MiniMessage.miniMessage().deserialize("<yellow>Next page</yellow>");
+    public static final Component TITLE_CATEGORIES = MiniMessage.miniMessage().deserialize("<yellow>Back to categories</yellow>");
 
 }
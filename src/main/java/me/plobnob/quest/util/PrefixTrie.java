@@ -0,0 +1,94 @@
+package me.plobnob.quest.util;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * A case-insensitive prefix trie mapping keys onto values.
+ * Prefix walks visit keys in alphabetical order and stop as soon as enough matches are found,
+ * so their cost scales with the number of matches rather than the number of keys.
+ * @param <V> The value type
+ */
+public class PrefixTrie<V> {
+
+    // Root node - the empty prefix
+    private final Node<V> root = new Node<>();
+
+    /**
+     * Function to add or replace the value for a key.
+     * @param key The key
+     * @param value The value
+     */
+    public void put(String key, V value) {
+        Node<V> node = root;
+        for (char c : normalise(key).toCharArray())
+            node = node.children.computeIfAbsent(c, ignored -> new Node<>());
+        node.value = value;
+    }
+
+    /**
+     * Function to remove the value for a key, pruning any nodes left empty.
+     * @param key The key
+     */
+    public void remove(String key) {
+        remove(root, normalise(key), 0);
+    }
+
+    /**
+     * Function to collect the values whose keys start with a prefix, in alphabetical key order.
+     * @param prefix The prefix to match (ignoring case)
+     * @param filter A filter values must pass to be collected
+     * @param limit The maximum number of values to collect
+     * @param consumer A consumer accepting each collected value
+     */
+    public void collect(String prefix, Predicate<V> filter, int limit, Consumer<V> consumer) {
+        Node<V> node = root;
+        for (char c : normalise(prefix).toCharArray()) {
+            node = node.children.get(c);
+            if (node == null)
+                return;
+        }
+        collect(node, filter, new int[] { limit }, consumer);
+    }
+
+    private static <V> boolean collect(Node<V> node, Predicate<V> filter, int[] remaining, Consumer<V> consumer) {
+        if (node.value != null && filter.test(node.value)) {
+            consumer.accept(node.value);
+            if (--remaining[0] <= 0)
+                return false;
+        }
+        for (Node<V> child : node.children.values()) {
+            if (!collect(child, filter, remaining, consumer))
+                return false;
+        }
+        return true;
+    }
+
+    private static <V> boolean remove(Node<V> node, String key, int depth) {
+        if (depth == key.length()) {
+            node.value = null;
+        } else {
+            Node<V> child = node.children.get(key.charAt(depth));
+            if (child != null && remove(child, key, depth + 1))
+                node.children.remove(key.charAt(depth));
+        }
+        return node.value == null && node.children.isEmpty();
+    }
+
+    private static String normalise(String key) {
+        return key.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * A trie node, holding a value if a key ends here.
+     * @param <V> The value type
+     */
+    private static class Node<V> {
+        private final Map<Character, Node<V>> children = new TreeMap<>();
+        private V value;
+    }
+
+}
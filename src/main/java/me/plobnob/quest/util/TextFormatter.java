@@ -1,8 +1,7 @@
 package me.plobnob.quest.util;
 
 import net.kyori.adventure.text.Component;
-import net.kyori.adventure.text.minimessage.MiniMessage;
-import org.davidmoten.text.utils.WordWrap;
+import org.bukkit.Bukkit;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.IllegalFormatException;
@@ -10,33 +9,50 @@ import java.util.List;
 
 /**
  * Utility interface to allow simplistic text formatting.
+ * Parsed components are shared through a bounded {@link ComponentCache}, as most formatted text is constant.
  */
 public interface TextFormatter {
 
+    /**
+     * Function to parse MiniMessage text without any format parameters - the text is not passed through String.format.
+     * @param text The MiniMessage text
+     * @return The parsed component
+     */
+    default @NotNull Component format(String text) {
+        return ComponentCache.parse(text == null ? "null" : text);
+    }
+
     default @NotNull Component format(String text, Object... params) {
-        try {
-            text = String.format(text, params);
-        } catch (IllegalFormatException ex) {
-            System.err.println("Invalid format was passed to questbook contents - this may not render correctly!");
-        }
-        return MiniMessage.miniMessage().deserialize(text);
+        return format(applyParams(text, params));
     }
 
+    /**
+     * Function to parse MiniMessage text and word-wrap it by visible characters, keeping formatting across lines.
+     * @param text The MiniMessage text, as a format string if parameters are given
+     * @param lineLength The maximum number of visible characters per line
+     * @param params The format parameters
+     * @return The wrapped lines
+     */
     default List<Component> wrappedFormat(String text, int lineLength, Object... params) {
+        return ComponentWrapper.wrap(format(applyParams(text, params)), lineLength);
+    }
+
+    /**
+     * Utility function to substitute format parameters, skipping String.format when there are none.
+     * @param text The format string
+     * @param params The format parameters
+     * @return The formatted text, or the original text if it was not a valid format
+     */
+    private String applyParams(String text, Object... params) {
+        if (params.length == 0)
+            return text;
         try {
-            text = String.format(text, params);
+            return String.format(text, params);
         } catch (IllegalFormatException ex) {
-            System.err.println("Invalid format was passed to questbook contents - this may not render correctly!");
+            Bukkit.getLogger().warning("Invalid format was passed to questbook contents - this may not render correctly! ("
+                    + ex.getMessage() + " in \"" + text + "\")");
+            return text;
         }
-
-        return WordWrap
-                .from(text)
-                .maxWidth(lineLength)
-                .breakWords(false)
-                .wrapToList()
-                .stream()
-                .map(line -> MiniMessage.miniMessage().deserialize(line))
-                .toList();
     }
 
 }
@@ -0,0 +1,141 @@
+package me.plobnob.quest.validation;
+
+import me.plobnob.quest.provider.Quest;
+import me.plobnob.quest.provider.QuestCatalogue;
+import me.plobnob.quest.provider.QuestProvider;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerCommandSendEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static me.plobnob.quest.util.PluginConstants.PERM_QUESTBOOK_VIEW_ALL;
+
+/**
+ * A per-player cache of which quests each player may view, stored as a bitset over quest ordinals.
+ * Entries are recomputed when the catalogue changes and dropped when a player's permissions are recalculated -
+ * the server resends a player's command list whenever that happens, which fires a {@link PlayerCommandSendEvent}.
+ * Visibility must be computed on the server thread, as permission checks are not thread safe. The resulting
+ * {@link Visibility} is immutable and may be handed to other threads.
+ */
+public class QuestVisibilityCache implements Listener {
+
+    // Member variables
+    private final QuestProvider questProvider;
+    private final long ttl;
+    private final Map<UUID, Visibility> visibilities = new ConcurrentHashMap<>();
+
+    /**
+     * Default constructor.
+     * @param questProvider The quest provider
+     * @param ttlSeconds How long an entry is trusted for without a permission recalculation, as a safety net
+     */
+    public QuestVisibilityCache(QuestProvider questProvider, long ttlSeconds) {
+        this.questProvider = questProvider;
+        this.ttl = TimeUnit.SECONDS.toNanos(ttlSeconds);
+    }
+
+    /**
+     * Function to get the quests a player may view, computing them if the cached entry is missing or stale.
+     * Must be called on the server thread.
+     * @param player The player
+     * @return The player's quest visibility for the current catalogue version
+     */
+    public Visibility getVisibility(Player player) {
+        // Both are read from a single snapshot, so the quests always match the version they are stamped with
+        QuestCatalogue snapshot = questProvider.getCatalogue();
+        long version = snapshot.getVersion();
+        List<Quest> catalogue = snapshot.getQuests();
+        long now = System.nanoTime();
+
+        Visibility visibility = visibilities.get(player.getUniqueId());
+        if (visibility != null && visibility.catalogueVersion() == version && now - visibility.computedAt() <= ttl)
+            return visibility;
+
+        return visibilities.compute(player.getUniqueId(), (uuid, existing) ->
+                existing != null && existing.catalogueVersion() == version && now - existing.computedAt() <= ttl
+                        ? existing
+                        : compute(player, catalogue, version, now));
+    }
+
+    /**
+     * Function to drop the cached entry for a player.
+     * @param uuid The player's unique id
+     */
+    public void invalidate(UUID uuid) {
+        visibilities.remove(uuid);
+    }
+
+    /**
+     * A listener to drop cached entries when a player's permissions are recalculated.
+     * @param event The event parameters
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPermissionsRecalculated(PlayerCommandSendEvent event) {
+        invalidate(event.getPlayer().getUniqueId());
+    }
+
+    /**
+     * A listener to drop cached entries when a player changes world, as permissions may be granted per world.
+     * @param event The event parameters
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerChangedWorld(PlayerChangedWorldEvent event) {
+        invalidate(event.getPlayer().getUniqueId());
+    }
+
+    /**
+     * A listener to drop cached entries for players leaving the server.
+     * @param event The event parameters
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        invalidate(event.getPlayer().getUniqueId());
+    }
+
+    /**
+     * Utility function to compute which quests a player may view.
+     * @param player The player
+     * @param catalogue The catalogue being computed against
+     * @param version The catalogue version read before the catalogue
+     * @param now The current {@link System#nanoTime()}
+     * @return The computed visibility
+     */
+    private Visibility compute(Player player, List<Quest> catalogue, long version, long now) {
+        int size = catalogue.size();
+        BitSet quests = new BitSet(size);
+
+        if (player.hasPermission(PERM_QUESTBOOK_VIEW_ALL)) {
+            quests.set(0, size);
+        } else {
+            for (int ordinal = 0; ordinal < size; ordinal++) {
+                if (player.hasPermission(catalogue.get(ordinal).getViewPermission()))
+                    quests.set(ordinal);
+            }
+        }
+
+        return new Visibility(catalogue, quests, quests.stream().toArray(), version, now);
+    }
+
+    /**
+     * The quests a player may view.
+     * @param catalogue The catalogue the ordinals index into
+     * @param quests The visible quest ordinals as a bitset - must not be modified
+     * @param ordinals The visible quest ordinals in catalogue order - must not be modified
+     * @param catalogueVersion The catalogue version read before the catalogue - the catalogue may be newer, so check it
+     *                         against the current version on the server thread before trusting the ordinals
+     * @param computedAt The {@link System#nanoTime()} the visibility was computed at
+     */
+    public record Visibility(List<Quest> catalogue, BitSet quests, int[] ordinals, long catalogueVersion, long computedAt) {
+    }
+
+}